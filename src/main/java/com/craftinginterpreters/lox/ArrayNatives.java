@@ -0,0 +1,77 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * The array natives: {@code array()} creates an empty array, {@code push(array, value)} appends to it and
+ * {@code size(array)} returns its length (or a map's entry count). Arrays can also be written as literals ({@code [1, 2]}) and indexed
+ * ({@code a[0]}, {@code a[0] = 1}).
+ */
+final class ArrayNatives {
+    private ArrayNatives() {
+    }
+
+    static void define(final Environment globals) {
+        globals.define("array", new NativeFunction(0, (interpreter, arguments) -> new LoxArray()));
+        globals.define("push", new NativeFunction(2, ArrayNatives::push));
+        globals.define("size", new NativeFunction(1, ArrayNatives::size));
+    }
+
+    private static Object push(final Interpreter interpreter, final List<Object> arguments) {
+        arrayArgument(arguments.get(0)).add(arguments.get(1));
+        return null;
+    }
+
+    private static Object size(final Interpreter interpreter, final List<Object> arguments) {
+        if (arguments.get(0) instanceof LoxMap map) {
+            return map.size();
+        }
+        return arrayArgument(arguments.get(0)).size();
+    }
+
+    static LoxArray arrayArgument(final Object argument) {
+        if (argument instanceof LoxArray array) {
+            return array;
+        }
+        throw new NativeError("Expected an array.");
+    }
+
+    /**
+     * Reads an element for {@code array[index]}; shared by both evaluators.
+     */
+    static Object get(final Object array, final Object index, final int line) {
+        final LoxArray target = indexTarget(array, line);
+        return target.get(checkIndex(target, index, line));
+    }
+
+    /**
+     * Stores an element for {@code array[index] = value}; shared by both evaluators.
+     */
+    static void set(final Object array, final Object index, final Object value, final int line) {
+        final LoxArray target = indexTarget(array, line);
+        target.set(checkIndex(target, index, line), value);
+    }
+
+    private static LoxArray indexTarget(final Object array, final int line) {
+        if (array instanceof LoxArray target) {
+            return target;
+        }
+        throw new RuntimeError(line, "Only arrays can be indexed.");
+    }
+
+    private static int checkIndex(final LoxArray array, final Object index, final int line) {
+        if (index instanceof Integer integer) {
+            if (integer < 0 || integer >= array.size()) {
+                throw new RuntimeError(line, "Array index out of bounds.");
+            }
+            return integer;
+        }
+        if (!(index instanceof Double number) || number != Math.floor(number)) {
+            throw new RuntimeError(line, "Array index must be an integer.");
+        }
+        if (number < 0 || number >= array.size()) {
+            throw new RuntimeError(line, "Array index out of bounds.");
+        }
+        return number.intValue();
+    }
+}
@@ -25,6 +25,21 @@ public class AstPrinter implements Expr.Visitor<String> {
         return null;
     }
 
+    @Override
+    public String visitArrayExpr(final Expr.Array expr) {
+        return parenthesize("array", expr.elements.toArray(new Expr[0]));
+    }
+
+    @Override
+    public String visitIndexExpr(final Expr.Index expr) {
+        return parenthesize("[]", expr.object, expr.index);
+    }
+
+    @Override
+    public String visitIndexSetExpr(final Expr.IndexSet expr) {
+        return parenthesize("[]=", expr.object, expr.index, expr.value);
+    }
+
     @Override
     public String visitAssignExpr(final Expr.Assign expr) {
         return null;
@@ -58,6 +73,11 @@ public class AstPrinter implements Expr.Visitor<String> {
         return null;
     }
 
+    @Override
+    public String visitSuperExpr(final Expr.Super expr) {
+        return null;
+    }
+
     @Override
     public String visitUnaryExpr(final Expr.Unary expr) {
         return parenthesize(expr.operator.lexeme(), expr.right);
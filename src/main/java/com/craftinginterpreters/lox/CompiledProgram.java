@@ -0,0 +1,53 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * A scanned, parsed and resolved program. Scope distances are stored in the AST nodes by the {@link Resolver}, so the
+ * program carries all of its resolution data. The only state that changes afterwards is in the {@link MemoTable}s of
+ * pure functions, which are synchronized, so any number of {@link LoxRuntime}s, on any number of threads, can execute
+ * the same instance concurrently.
+ */
+public final class CompiledProgram {
+    // exactly one of these is set, depending on which evaluator the program was compiled for
+    final List<Stmt> statements;
+    final FlatAst flat;
+    final List<MemoTable> memoTables;
+
+    private CompiledProgram(final List<Stmt> statements, final FlatAst flat, final List<MemoTable> memoTables) {
+        this.statements = statements;
+        this.flat = flat;
+        this.memoTables = memoTables;
+    }
+
+    /**
+     * @return the compiled program, or null if the source has errors (which are sent to the reporter)
+     */
+    static CompiledProgram compile(final String source, final ErrorReporter reporter, final boolean flat) {
+        final Scanner scanner = new Scanner(source, reporter);
+        final List<Token> tokens = scanner.scanTokens();
+
+        final Parser parser = new Parser(tokens, reporter);
+        final List<Stmt> statements = parser.parse();
+
+        // stop if there was a parse error
+        if (reporter.hadError()) {
+            return null;
+        }
+
+        final Resolver resolver = new Resolver(reporter);
+        resolver.resolve(statements);
+
+        // stop if there was a resolution error
+        if (reporter.hadError()) {
+            return null;
+        }
+
+        final List<MemoTable> memoTables = PurityAnalyzer.analyze(statements);
+
+        if (flat) {
+            return new CompiledProgram(null, FlatAst.encode(statements), memoTables);
+        }
+        return new CompiledProgram(List.copyOf(statements), null, memoTables);
+    }
+}
@@ -0,0 +1,117 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The concurrency natives:
+ * <ul>
+ *     <li>{@code spawn(fn)} calls the zero-argument function {@code fn} on another thread and returns a task</li>
+ *     <li>{@code await(task)} waits for a task and returns its result; a runtime error in the task is raised again in
+ *     the awaiting code</li>
+ *     <li>{@code channel(capacity)} creates a bounded channel</li>
+ *     <li>{@code send(channel, value)} and {@code receive(channel)} pass values over a channel, blocking while it is
+ *     full or empty</li>
+ * </ul>
+ * A spawned function runs on its own {@link Interpreter#fork() fork} of the spawning interpreter, so the environments
+ * it creates and other per-call state are confined to the task's thread; globals are shared and thread-safe (see
+ * {@link GlobalEnvironment}).
+ *
+ * <p>Local variables the function captured are not: its closure's {@link Environment}s are shared with the spawning
+ * thread (and with any other task running the same closure) and are not thread-safe. A task must not assign a captured
+ * variable that another thread reads or assigns at the same time, and vice versa; such data should go through
+ * channels, globals or the task's result. The same applies to functions passed to {@code parallelMap} and
+ * {@code parallelReduce}.
+ */
+final class Concurrency {
+    // tasks may block on channels and on each other, so the pool must not limit the number of threads
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "lox-task");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Concurrency() {
+    }
+
+    static void define(final Environment globals) {
+        globals.define("spawn", new NativeFunction(1, Concurrency::spawn));
+        globals.define("await", new NativeFunction(1, Concurrency::await));
+        globals.define("channel", new NativeFunction(1, Concurrency::channel));
+        globals.define("send", new NativeFunction(2, Concurrency::send));
+        globals.define("receive", new NativeFunction(1, Concurrency::receive));
+    }
+
+    private static Object spawn(final Interpreter interpreter, final List<Object> arguments) {
+        if (!(arguments.get(0) instanceof LoxCallable function) || function.arity() != 0) {
+            throw new NativeError("Can only spawn a function that takes no arguments.");
+        }
+        final Interpreter fork = interpreter.fork();
+        final LoxTask task = new LoxTask();
+        EXECUTOR.execute(() -> {
+            try {
+                task.result.complete(function.call(fork, List.of()));
+            } catch (final Throwable e) {
+                task.result.completeExceptionally(e);
+            }
+        });
+        return task;
+    }
+
+    private static Object await(final Interpreter interpreter, final List<Object> arguments) {
+        if (!(arguments.get(0) instanceof LoxTask task)) {
+            throw new NativeError("Can only await a task.");
+        }
+        try {
+            return task.result.get();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeError error) {
+                throw error;
+            }
+            throw new NativeError("Task failed: " + e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NativeError("Interrupted while awaiting a task.");
+        }
+    }
+
+    private static Object channel(final Interpreter interpreter, final List<Object> arguments) {
+        final Object argument = arguments.get(0);
+        if (!LoxNumber.isNumber(argument)) {
+            throw new NativeError("Channel capacity must be a positive integer.");
+        }
+        final double capacity = LoxNumber.toDouble(argument);
+        if (capacity < 1 || capacity != Math.floor(capacity)) {
+            throw new NativeError("Channel capacity must be a positive integer.");
+        }
+        return new LoxChannel((int) capacity);
+    }
+
+    private static Object send(final Interpreter interpreter, final List<Object> arguments) {
+        try {
+            channelArgument(arguments).send(arguments.get(1));
+            return null;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NativeError("Interrupted while sending.");
+        }
+    }
+
+    private static Object receive(final Interpreter interpreter, final List<Object> arguments) {
+        try {
+            return channelArgument(arguments).receive();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NativeError("Interrupted while receiving.");
+        }
+    }
+
+    private static LoxChannel channelArgument(final List<Object> arguments) {
+        if (arguments.get(0) instanceof LoxChannel channel) {
+            return channel;
+        }
+        throw new NativeError("Expected a channel.");
+    }
+}
@@ -0,0 +1,117 @@
+package com.craftinginterpreters.lox;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+/**
+ * The wire format shared by {@link LoxDaemon} and {@link LoxClient}. A request is the script source as a length-prefixed
+ * UTF-8 block. The response is a sequence of frames, each a type byte followed by an int payload length and the
+ * payload: {@link #STDOUT} and {@link #STDERR} frames carry output bytes, and a final {@link #EXIT} frame carries the
+ * exit status as its length (with no payload).
+ */
+final class DaemonProtocol {
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+    static final byte EXIT = 3;
+
+    private static final String SOCKET_NAME = "jlox.sock";
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * Returns the socket given by the {@code lox.socket} system property, or else {@code jlox.sock} in
+     * {@code $XDG_RUNTIME_DIR}, or else in a directory {@code jlox-<user>} in the temp directory. The temp directory is
+     * shared, so that directory is created accessible to its owner only and is checked to still be: otherwise another
+     * user could create it first and receive the scripts sent to it.
+     *
+     * @throws IOException if the directory cannot be created or is not private to this user
+     */
+    static UnixDomainSocketAddress defaultAddress() throws IOException {
+        final String configured = System.getProperty("lox.socket");
+        if (configured != null) {
+            return UnixDomainSocketAddress.of(configured);
+        }
+        final String runtimeDirectory = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDirectory != null && !runtimeDirectory.isEmpty()) {
+            return UnixDomainSocketAddress.of(Path.of(runtimeDirectory, SOCKET_NAME));
+        }
+        final Path directory =
+                Path.of(System.getProperty("java.io.tmpdir"), "jlox-" + System.getProperty("user.name"));
+        return UnixDomainSocketAddress.of(privateDirectory(directory).resolve(SOCKET_NAME));
+    }
+
+    private static Path privateDirectory(final Path directory) throws IOException {
+        try {
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        } catch (final FileAlreadyExistsException e) {
+            // checked below
+        }
+        final PosixFileAttributes attributes =
+                Files.readAttributes(directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        final UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!attributes.isDirectory() || !attributes.owner().equals(user) ||
+                !OWNER_ONLY.containsAll(attributes.permissions())) {
+            throw new IOException(directory + " is not a directory accessible only to " + user.getName());
+        }
+        return directory;
+    }
+
+    static void writeBlock(final DataOutputStream out, final byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBlock(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Sends everything written to it as frames of one type. Callers buffer in front of it, so each flush of their
+     * buffer becomes one frame.
+     */
+    static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutputStream(final DataOutputStream out, final byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(length);
+                out.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -3,14 +3,18 @@ package com.craftinginterpreters.lox;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * A local scope. Environments are not thread-safe: one is normally used only by the thread that created it, but a
+ * closure passed to another thread (see {@link Concurrency}) shares the environments it captured with it.
+ */
 public class Environment {
     final Environment enclosing;
     private final Map<String, Object> values = new HashMap<>();
 
     /**
-     * Constructs the global environment (the one with no enclosing environment)
+     * Constructs an environment with no enclosing environment; see {@link GlobalEnvironment}
      */
-    public Environment() {
+    Environment() {
         enclosing = null;
     }
 
@@ -26,8 +30,12 @@ public class Environment {
         return ancestor(distance).values.get(name);
     }
 
-    public void assignAt(final Integer distance, final Token name, final Object value) {
-        ancestor(distance).values.put(name.lexeme(), value);
+    public void assignAt(final int distance, final Token name, final Object value) {
+        assignAt(distance, name.lexeme(), value);
+    }
+
+    void assignAt(final int distance, final String name, final Object value) {
+        ancestor(distance).values.put(name, value);
     }
 
     private Environment ancestor(final int distance) {
@@ -39,29 +47,37 @@ public class Environment {
     }
 
     Object get(final Token name) {
-        if (values.containsKey(name.lexeme())) {
-            return values.get(name.lexeme());
+        return get(name.lexeme(), name.line());
+    }
+
+    Object get(final String name, final int line) {
+        if (values.containsKey(name)) {
+            return values.get(name);
         }
 
         if (enclosing != null) {
-            return enclosing.get(name);
+            return enclosing.get(name, line);
         }
 
-        throw new RuntimeError(name, "Undefined variable '" + name.lexeme() + "'");
+        throw new RuntimeError(line, "Undefined variable '" + name + "'");
     }
 
     public void assign(final Token name, final Object value) {
-        if (values.containsKey(name.lexeme())) {
-            values.put(name.lexeme(), value);
+        assign(name.lexeme(), name.line(), value);
+    }
+
+    void assign(final String name, final int line, final Object value) {
+        if (values.containsKey(name)) {
+            values.put(name, value);
             return;
         }
 
         if (enclosing != null) {
-            enclosing.assign(name, value);
+            enclosing.assign(name, line, value);
             return;
         }
 
-        throw new RuntimeError(name,
-                "Undefined variable '" + name.lexeme() + "'.");
+        throw new RuntimeError(line,
+                "Undefined variable '" + name + "'.");
     }
 }
@@ -0,0 +1,55 @@
+package com.craftinginterpreters.lox;
+
+import java.io.PrintStream;
+
+import static com.craftinginterpreters.lox.TokenType.EOF;
+
+/**
+ * Collects the static (scan, parse and resolution) and runtime errors of one {@link LoxRuntime} and prints them to
+ * that runtime's error stream.
+ */
+class ErrorReporter {
+    private final PrintStream err;
+    private boolean hadError;
+    private boolean hadRuntimeError;
+
+    ErrorReporter(final PrintStream err) {
+        this.err = err;
+    }
+
+    boolean hadError() {
+        return hadError;
+    }
+
+    boolean hadRuntimeError() {
+        return hadRuntimeError;
+    }
+
+    void reset() {
+        hadError = false;
+        hadRuntimeError = false;
+    }
+
+    void error(final int line, final String message) {
+        report(line, "", message);
+    }
+
+    void error(final Token token, final String message) {
+        if (token.type() == EOF) {
+            report(token.line(), " at end", message);
+        } else {
+            report(token.line(), " at '" + token.lexeme() + "'", message);
+        }
+    }
+
+    private void report(final int line, final String where, final String message) {
+        err.println("[Line " + line + "] Error" + where + ": " + message);
+        hadError = true;
+    }
+
+    void runtimeError(final RuntimeError error) {
+        err.println(error.getMessage() +
+                "\n[line " + error.line + "]");
+        hadRuntimeError = true;
+    }
+}
@@ -3,23 +3,95 @@ package com.craftinginterpreters.lox;
 
 import java.util.List;
 
-abstract class Expr {
+abstract sealed class Expr {
+  static final int ARRAY = 0;
+  static final int ASSIGN = 1;
+  static final int BINARY = 2;
+  static final int CALL = 3;
+  static final int GET = 4;
+  static final int GROUPING = 5;
+  static final int INDEX = 6;
+  static final int INDEX_SET = 7;
+  static final int LITERAL = 8;
+  static final int LOGICAL = 9;
+  static final int SET = 10;
+  static final int SUPER = 11;
+  static final int THIS = 12;
+  static final int UNARY = 13;
+  static final int VARIABLE = 14;
+
   interface Visitor<R> {
+    R visitArrayExpr(Array expr);
+    R visitAssignExpr(Assign expr);
+    R visitBinaryExpr(Binary expr);
     R visitCallExpr(Call expr);
-    R visitSetExpr(Set expr);
-    R visitVariableExpr(Variable expr);
     R visitGetExpr(Get expr);
+    R visitGroupingExpr(Grouping expr);
+    R visitIndexExpr(Index expr);
+    R visitIndexSetExpr(IndexSet expr);
     R visitLiteralExpr(Literal expr);
     R visitLogicalExpr(Logical expr);
+    R visitSetExpr(Set expr);
+    R visitSuperExpr(Super expr);
     R visitThisExpr(This expr);
-    R visitAssignExpr(Assign expr);
-    R visitGroupingExpr(Grouping expr);
-    R visitBinaryExpr(Binary expr);
     R visitUnaryExpr(Unary expr);
+    R visitVariableExpr(Variable expr);
 }
 
-  static class Call extends Expr {
+  static final class Array extends Expr {
+    Array(Token bracket,List<Expr> elements) {
+      super(ARRAY);
+      this.bracket = bracket;
+      this.elements = elements;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitArrayExpr(this);
+    }
+
+    final Token bracket;
+    final List<Expr> elements;
+  }
+
+  static final class Assign extends Expr {
+    Assign(Token name,Expr value) {
+      super(ASSIGN);
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitAssignExpr(this);
+    }
+
+    final Token name;
+    final Expr value;
+    int distance = -1;
+  }
+
+  static final class Binary extends Expr {
+    Binary(Expr left,Token operator,Expr right) {
+      super(BINARY);
+      this.left = left;
+      this.operator = operator;
+      this.right = right;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitBinaryExpr(this);
+    }
+
+    final Expr left;
+    final Token operator;
+    final Expr right;
+  }
+
+  static final class Call extends Expr {
     Call(Expr callee,Token paren,List<Expr> arguments) {
+      super(CALL);
       this.callee = callee;
       this.paren = paren;
       this.arguments = arguments;
@@ -35,53 +107,77 @@ abstract class Expr {
     final List<Expr> arguments;
   }
 
-  static class Set extends Expr {
-    Set(Expr object,Token name,Expr value) {
+  static final class Get extends Expr {
+    Get(Expr object,Token name) {
+      super(GET);
       this.object = object;
       this.name = name;
-      this.value = value;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitSetExpr(this);
+      return visitor.visitGetExpr(this);
     }
 
     final Expr object;
     final Token name;
-    final Expr value;
   }
 
-  static class Variable extends Expr {
-    Variable(Token name) {
-      this.name = name;
+  static final class Grouping extends Expr {
+    Grouping(Expr expression) {
+      super(GROUPING);
+      this.expression = expression;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitVariableExpr(this);
+      return visitor.visitGroupingExpr(this);
     }
 
-    final Token name;
+    final Expr expression;
   }
 
-  static class Get extends Expr {
-    Get(Expr object,Token name) {
+  static final class Index extends Expr {
+    Index(Expr object,Token bracket,Expr index) {
+      super(INDEX);
       this.object = object;
-      this.name = name;
+      this.bracket = bracket;
+      this.index = index;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitGetExpr(this);
+      return visitor.visitIndexExpr(this);
     }
 
     final Expr object;
-    final Token name;
+    final Token bracket;
+    final Expr index;
+  }
+
+  static final class IndexSet extends Expr {
+    IndexSet(Expr object,Token bracket,Expr index,Expr value) {
+      super(INDEX_SET);
+      this.object = object;
+      this.bracket = bracket;
+      this.index = index;
+      this.value = value;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitIndexSetExpr(this);
+    }
+
+    final Expr object;
+    final Token bracket;
+    final Expr index;
+    final Expr value;
   }
 
-  static class Literal extends Expr {
+  static final class Literal extends Expr {
     Literal(Object value) {
+      super(LITERAL);
       this.value = value;
     }
 
@@ -93,8 +189,9 @@ abstract class Expr {
     final Object value;
   }
 
-  static class Logical extends Expr {
+  static final class Logical extends Expr {
     Logical(Expr left,Token operator,Expr right) {
+      super(LOGICAL);
       this.left = left;
       this.operator = operator;
       this.right = right;
@@ -110,78 +207,92 @@ abstract class Expr {
     final Expr right;
   }
 
-  static class This extends Expr {
-    This(Token keyword) {
-      this.keyword = keyword;
+  static final class Set extends Expr {
+    Set(Expr object,Token name,Expr value) {
+      super(SET);
+      this.object = object;
+      this.name = name;
+      this.value = value;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitThisExpr(this);
+      return visitor.visitSetExpr(this);
     }
 
-    final Token keyword;
+    final Expr object;
+    final Token name;
+    final Expr value;
   }
 
-  static class Assign extends Expr {
-    Assign(Token name,Expr value) {
-      this.name = name;
-      this.value = value;
+  static final class Super extends Expr {
+    Super(Token keyword,Token method) {
+      super(SUPER);
+      this.keyword = keyword;
+      this.method = method;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitAssignExpr(this);
+      return visitor.visitSuperExpr(this);
     }
 
-    final Token name;
-    final Expr value;
+    final Token keyword;
+    final Token method;
+    int distance = -1;
   }
 
-  static class Grouping extends Expr {
-    Grouping(Expr expression) {
-      this.expression = expression;
+  static final class This extends Expr {
+    This(Token keyword) {
+      super(THIS);
+      this.keyword = keyword;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitGroupingExpr(this);
+      return visitor.visitThisExpr(this);
     }
 
-    final Expr expression;
+    final Token keyword;
+    int distance = -1;
   }
 
-  static class Binary extends Expr {
-    Binary(Expr left,Token operator,Expr right) {
-      this.left = left;
+  static final class Unary extends Expr {
+    Unary(Token operator,Expr right) {
+      super(UNARY);
       this.operator = operator;
       this.right = right;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitBinaryExpr(this);
+      return visitor.visitUnaryExpr(this);
     }
 
-    final Expr left;
     final Token operator;
     final Expr right;
   }
 
-  static class Unary extends Expr {
-    Unary(Token operator,Expr right) {
-      this.operator = operator;
-      this.right = right;
+  static final class Variable extends Expr {
+    Variable(Token name) {
+      super(VARIABLE);
+      this.name = name;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitUnaryExpr(this);
+      return visitor.visitVariableExpr(this);
     }
 
-    final Token operator;
-    final Expr right;
+    final Token name;
+    int distance = -1;
   }
 
+  Expr(int kind) {
+    this.kind = kind;
+  }
+
+  final int kind;
+
   abstract <R> R accept(Visitor<R> visitor);
 }
@@ -0,0 +1,364 @@
+package com.craftinginterpreters.lox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A resolved program stored in parallel primitive arrays instead of one heap object per node. Node {@code i} has a
+ * kind, a source line and up to three int operands; operands refer to other nodes, to entries of the constant pool
+ * (names and literal values) or to lists. A list is stored inline in {@link #lists} as its length followed by its
+ * elements.
+ *
+ * <p>The point is footprint: a loaded program retains well under half the heap its tree would, which matters to a
+ * host that keeps many programs loaded. Evaluating it is not consistently faster than walking the tree (the
+ * {@code evaluatorBenchmark} Gradle task compares them).
+ *
+ * <p>Expression kinds are the {@link Expr} kind constants; statement kinds are the {@link Stmt} kind constants offset
+ * by {@link #STMT}. Operands by kind (absent operands are {@link #NONE}):
+ * <ul>
+ *     <li>Array: element list</li>
+ *     <li>Assign: name, value, scope distance</li>
+ *     <li>Binary, Logical: left, right, operator ordinal</li>
+ *     <li>Call: callee, argument list</li>
+ *     <li>Get: object, name</li>
+ *     <li>Grouping, Expression, Print, Return: expression</li>
+ *     <li>Index: array, index</li>
+ *     <li>IndexSet: array, index, value</li>
+ *     <li>Literal: value</li>
+ *     <li>Set: object, name, value</li>
+ *     <li>Super: method name, scope distance</li>
+ *     <li>This: scope distance</li>
+ *     <li>Unary: operand, operator ordinal</li>
+ *     <li>Variable: name, scope distance</li>
+ *     <li>Block: statement list</li>
+ *     <li>Class: name, body list, superclass variable; the body list holds the field count (see
+ *     {@link Stmt.Class#fieldCount}) followed by the methods</li>
+ *     <li>Function: name, parameter name list, body statement list</li>
+ *     <li>If: condition, then branch, else branch</li>
+ *     <li>Var: name, initializer</li>
+ *     <li>While: condition, body</li>
+ * </ul>
+ * A scope distance of {@link #NONE} means the name is global.
+ *
+ * <p>Each Function node also carries the {@link MemoTable} of its declaration, if it has one.
+ *
+ * <p>A flat AST is immutable.
+ */
+final class FlatAst {
+    static final int STMT = 16;
+    static final int NONE = -1;
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final int[] kinds;
+    private final int[] lines;
+    // three operands per node
+    private final int[] operands;
+    private final Object[] constants;
+    private final int[] lists;
+    private final int program;
+    // Function node -> memo table, for the functions that have one
+    private final Map<Integer, MemoTable> memos;
+
+    private FlatAst(final Encoder encoder, final int program) {
+        this.kinds = Arrays.copyOf(encoder.kinds, encoder.nodeCount);
+        this.lines = Arrays.copyOf(encoder.lines, encoder.nodeCount);
+        this.operands = Arrays.copyOf(encoder.operands, encoder.nodeCount * 3);
+        this.constants = encoder.constants.toArray();
+        this.lists = Arrays.copyOf(encoder.lists, encoder.listLength);
+        this.program = program;
+        this.memos = Map.copyOf(encoder.memos);
+    }
+
+    /**
+     * Encodes resolved statements. The result does not refer to the tree (or its tokens), so the tree can be
+     * garbage-collected once it has been encoded.
+     */
+    static FlatAst encode(final List<Stmt> statements) {
+        final Encoder encoder = new Encoder();
+        final int program = encoder.statements(statements);
+        return new FlatAst(encoder, program);
+    }
+
+    int program() {
+        return program;
+    }
+
+    int kind(final int node) {
+        return kinds[node];
+    }
+
+    int line(final int node) {
+        return lines[node];
+    }
+
+    int a(final int node) {
+        return operands[node * 3];
+    }
+
+    int b(final int node) {
+        return operands[node * 3 + 1];
+    }
+
+    int c(final int node) {
+        return operands[node * 3 + 2];
+    }
+
+    Object constant(final int index) {
+        return constants[index];
+    }
+
+    String name(final int index) {
+        return (String) constants[index];
+    }
+
+    TokenType operator(final int ordinal) {
+        return TOKEN_TYPES[ordinal];
+    }
+
+    int listSize(final int list) {
+        return lists[list];
+    }
+
+    int listItem(final int list, final int i) {
+        return lists[list + 1 + i];
+    }
+
+    /**
+     * @return the memo table of a Function node, or null if its calls are not memoized
+     */
+    MemoTable memo(final int node) {
+        // most programs have no memoized functions, so skip boxing the node for every call
+        return memos.isEmpty() ? null : memos.get(node);
+    }
+
+    private static final class Encoder implements Expr.Visitor<Integer>, Stmt.Visitor<Integer> {
+        private final List<Object> constants = new ArrayList<>();
+        // names are pooled so that each distinct identifier is stored once
+        private final Map<String, Integer> names = new HashMap<>();
+        private int[] kinds = new int[64];
+        private int[] lines = new int[64];
+        private int[] operands = new int[64 * 3];
+        private int nodeCount;
+        private int[] lists = new int[64];
+        private int listLength;
+        private final Map<Integer, MemoTable> memos = new HashMap<>();
+
+        private int node(final int kind, final int line, final int a, final int b, final int c) {
+            if (nodeCount == kinds.length) {
+                kinds = Arrays.copyOf(kinds, nodeCount * 2);
+                lines = Arrays.copyOf(lines, nodeCount * 2);
+                operands = Arrays.copyOf(operands, nodeCount * 2 * 3);
+            }
+            kinds[nodeCount] = kind;
+            lines[nodeCount] = line;
+            operands[nodeCount * 3] = a;
+            operands[nodeCount * 3 + 1] = b;
+            operands[nodeCount * 3 + 2] = c;
+            return nodeCount++;
+        }
+
+        private int list(final int[] items) {
+            if (listLength + items.length + 1 > lists.length) {
+                lists = Arrays.copyOf(lists, Math.max(lists.length * 2, listLength + items.length + 1));
+            }
+            final int list = listLength;
+            lists[listLength++] = items.length;
+            System.arraycopy(items, 0, lists, listLength, items.length);
+            listLength += items.length;
+            return list;
+        }
+
+        private int constant(final Object value) {
+            constants.add(value);
+            return constants.size() - 1;
+        }
+
+        private int name(final Token name) {
+            return names.computeIfAbsent(name.lexeme(), this::constant);
+        }
+
+        private int expression(final Expr expr) {
+            return expr == null ? NONE : expr.accept(this);
+        }
+
+        private int statement(final Stmt stmt) {
+            return stmt == null ? NONE : stmt.accept(this);
+        }
+
+        int statements(final List<Stmt> statements) {
+            final int[] items = new int[statements.size()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = statement(statements.get(i));
+            }
+            return list(items);
+        }
+
+        @Override
+        public Integer visitArrayExpr(final Expr.Array expr) {
+            final int[] elements = new int[expr.elements.size()];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = expression(expr.elements.get(i));
+            }
+            return node(Expr.ARRAY, expr.bracket.line(), list(elements), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitIndexExpr(final Expr.Index expr) {
+            final int object = expression(expr.object);
+            final int index = expression(expr.index);
+            return node(Expr.INDEX, expr.bracket.line(), object, index, NONE);
+        }
+
+        @Override
+        public Integer visitIndexSetExpr(final Expr.IndexSet expr) {
+            final int object = expression(expr.object);
+            final int index = expression(expr.index);
+            final int value = expression(expr.value);
+            return node(Expr.INDEX_SET, expr.bracket.line(), object, index, value);
+        }
+
+        @Override
+        public Integer visitAssignExpr(final Expr.Assign expr) {
+            final int value = expression(expr.value);
+            return node(Expr.ASSIGN, expr.name.line(), name(expr.name), value, expr.distance);
+        }
+
+        @Override
+        public Integer visitBinaryExpr(final Expr.Binary expr) {
+            final int left = expression(expr.left);
+            final int right = expression(expr.right);
+            return node(Expr.BINARY, expr.operator.line(), left, right, expr.operator.type().ordinal());
+        }
+
+        @Override
+        public Integer visitCallExpr(final Expr.Call expr) {
+            final int callee = expression(expr.callee);
+            final int[] arguments = new int[expr.arguments.size()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = expression(expr.arguments.get(i));
+            }
+            return node(Expr.CALL, expr.paren.line(), callee, list(arguments), NONE);
+        }
+
+        @Override
+        public Integer visitGetExpr(final Expr.Get expr) {
+            final int object = expression(expr.object);
+            return node(Expr.GET, expr.name.line(), object, name(expr.name), NONE);
+        }
+
+        @Override
+        public Integer visitGroupingExpr(final Expr.Grouping expr) {
+            return node(Expr.GROUPING, 0, expression(expr.expression), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitLiteralExpr(final Expr.Literal expr) {
+            return node(Expr.LITERAL, 0, constant(expr.value), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitLogicalExpr(final Expr.Logical expr) {
+            final int left = expression(expr.left);
+            final int right = expression(expr.right);
+            return node(Expr.LOGICAL, expr.operator.line(), left, right, expr.operator.type().ordinal());
+        }
+
+        @Override
+        public Integer visitSetExpr(final Expr.Set expr) {
+            final int object = expression(expr.object);
+            final int value = expression(expr.value);
+            return node(Expr.SET, expr.name.line(), object, name(expr.name), value);
+        }
+
+        @Override
+        public Integer visitSuperExpr(final Expr.Super expr) {
+            return node(Expr.SUPER, expr.method.line(), name(expr.method), expr.distance, NONE);
+        }
+
+        @Override
+        public Integer visitThisExpr(final Expr.This expr) {
+            return node(Expr.THIS, expr.keyword.line(), expr.distance, NONE, NONE);
+        }
+
+        @Override
+        public Integer visitUnaryExpr(final Expr.Unary expr) {
+            final int right = expression(expr.right);
+            return node(Expr.UNARY, expr.operator.line(), right, expr.operator.type().ordinal(), NONE);
+        }
+
+        @Override
+        public Integer visitVariableExpr(final Expr.Variable expr) {
+            return node(Expr.VARIABLE, expr.name.line(), name(expr.name), expr.distance, NONE);
+        }
+
+        @Override
+        public Integer visitBlockStmt(final Stmt.Block stmt) {
+            return node(STMT + Stmt.BLOCK, 0, statements(stmt.statements), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitClassStmt(final Stmt.Class stmt) {
+            final int superclass = expression(stmt.superclass);
+            final int[] body = new int[stmt.methods.size() + 1];
+            body[0] = stmt.fieldCount;
+            for (int i = 1; i < body.length; i++) {
+                body[i] = statement(stmt.methods.get(i - 1));
+            }
+            return node(STMT + Stmt.CLASS, stmt.name.line(), name(stmt.name), list(body), superclass);
+        }
+
+        @Override
+        public Integer visitExpressionStmt(final Stmt.Expression stmt) {
+            return node(STMT + Stmt.EXPRESSION, 0, expression(stmt.expression), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitFunctionStmt(final Stmt.Function stmt) {
+            final int[] params = new int[stmt.params.size()];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = name(stmt.params.get(i));
+            }
+            final int body = statements(stmt.body);
+            final int node = node(STMT + Stmt.FUNCTION, stmt.name.line(), name(stmt.name), list(params), body);
+            if (stmt.memo != null) {
+                memos.put(node, stmt.memo);
+            }
+            return node;
+        }
+
+        @Override
+        public Integer visitIfStmt(final Stmt.If stmt) {
+            final int condition = expression(stmt.condition);
+            final int thenBranch = statement(stmt.thenBranch);
+            final int elseBranch = statement(stmt.elseBranch);
+            return node(STMT + Stmt.IF, 0, condition, thenBranch, elseBranch);
+        }
+
+        @Override
+        public Integer visitPrintStmt(final Stmt.Print stmt) {
+            return node(STMT + Stmt.PRINT, 0, expression(stmt.expression), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitReturnStmt(final Stmt.Return stmt) {
+            return node(STMT + Stmt.RETURN, stmt.keyword.line(), expression(stmt.value), NONE, NONE);
+        }
+
+        @Override
+        public Integer visitVarStmt(final Stmt.Var stmt) {
+            final int initializer = expression(stmt.initializer);
+            return node(STMT + Stmt.VAR, stmt.name.line(), name(stmt.name), initializer, NONE);
+        }
+
+        @Override
+        public Integer visitWhileStmt(final Stmt.While stmt) {
+            final int condition = expression(stmt.condition);
+            final int body = statement(stmt.body);
+            return node(STMT + Stmt.WHILE, 0, condition, body, NONE);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * A function or method declared in a {@link FlatAst}; the counterpart of {@link LoxFunction} for the flat evaluator.
+ */
+class FlatFunction implements LoxMethod {
+
+    final FlatInterpreter evaluator;
+    // the Function node
+    final int declaration;
+    final Environment closure;
+    final boolean isInitializer;
+
+    FlatFunction(final FlatInterpreter evaluator, final int declaration, final Environment closure,
+                 final boolean isInitializer) {
+        this.evaluator = evaluator;
+        this.declaration = declaration;
+        this.closure = closure;
+        this.isInitializer = isInitializer;
+    }
+
+    @Override
+    public int arity() {
+        return evaluator.ast.listSize(evaluator.ast.b(declaration));
+    }
+
+    @Override
+    public Object call(final Interpreter interpreter, final List<Object> arguments) {
+        if (!StackInterpreter.ENABLED && evaluator.ast.memo(declaration) == null) {
+            return execute(closure, interpreter, arguments);
+        }
+        return invoke(closure, interpreter, arguments);
+    }
+
+    @Override
+    public Object callOn(final LoxInstance instance, final Interpreter interpreter, final List<Object> arguments) {
+        final Environment environment = new Environment(closure);
+        environment.define("this", instance);
+        return invoke(environment, interpreter, arguments);
+    }
+
+    private Object invoke(final Environment closure, final Interpreter interpreter, final List<Object> arguments) {
+        if (StackInterpreter.ENABLED) {
+            return StackInterpreter.call(interpreter, this, closure, arguments);
+        }
+        final MemoTable memo = evaluator.ast.memo(declaration);
+        if (memo == null) {
+            return execute(closure, interpreter, arguments);
+        }
+        return memoized(memo, closure, interpreter, arguments);
+    }
+
+    private Object memoized(final MemoTable memo, final Environment closure, final Interpreter interpreter,
+                            final List<Object> arguments) {
+        final Object key = MemoTable.key(arguments);
+        if (key == null) {
+            return execute(closure, interpreter, arguments);
+        }
+        Object result = memo.get(key);
+        if (result == MemoTable.MISSING) {
+            result = execute(closure, interpreter, arguments);
+            memo.put(key, result);
+        }
+        return result;
+    }
+
+    private Object execute(final Environment closure, final Interpreter interpreter, final List<Object> arguments) {
+        final FlatInterpreter evaluator = this.evaluator.forInterpreter(interpreter);
+        final FlatAst ast = evaluator.ast;
+        final Environment environment = new Environment(closure);
+        final int params = ast.b(declaration);
+        for (int i = 0; i < ast.listSize(params); i++) {
+            environment.define(ast.name(ast.listItem(params, i)), arguments.get(i));
+        }
+
+        try {
+            evaluator.executeBlock(ast.c(declaration), environment);
+        } catch (final Return returnValue) {
+            if (isInitializer) {
+                return closure.getAt(0, "this");
+            }
+            return returnValue.value;
+        }
+
+        if (isInitializer) {
+            return closure.getAt(0, "this");
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "<fn " + evaluator.ast.name(evaluator.ast.a(declaration)) + ">";
+    }
+
+    @Override
+    public FlatFunction bind(final LoxInstance instance) {
+        final Environment environment = new Environment(closure);
+        environment.define("this", instance);
+        return new FlatFunction(evaluator, declaration, environment, isInitializer);
+    }
+}
@@ -0,0 +1,233 @@
+package com.craftinginterpreters.lox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.craftinginterpreters.lox.FlatAst.NONE;
+import static com.craftinginterpreters.lox.FlatAst.STMT;
+
+/**
+ * Evaluates a {@link FlatAst}. Semantics match {@link Interpreter}, whose globals this evaluator shares and whose
+ * operator helpers it reuses; only the representation of the program differs.
+ */
+class FlatInterpreter {
+    private final Interpreter interpreter;
+    final FlatAst ast;
+    private Environment environment;
+
+    FlatInterpreter(final Interpreter interpreter, final FlatAst ast) {
+        this.interpreter = interpreter;
+        this.ast = ast;
+        this.environment = interpreter.globals;
+    }
+
+    /**
+     * Returns an evaluator of the same program for the given interpreter. Functions use it so that a function value
+     * passed to another interpreter (for example through a {@link GlobalSnapshot}) runs against that interpreter's
+     * globals and state rather than those of the interpreter that declared it. The other interpreter keeps the evaluator
+     * it gets, so calls from it (including recursive ones) do not create one each time.
+     */
+    FlatInterpreter forInterpreter(final Interpreter interpreter) {
+        if (interpreter == this.interpreter) {
+            return this;
+        }
+        return interpreter.flatEvaluator(ast);
+    }
+
+    void interpret() {
+        final int program = ast.program();
+        try {
+            for (int i = 0; i < ast.listSize(program); i++) {
+                execute(ast.listItem(program, i));
+            }
+        } catch (final RuntimeError error) {
+            interpreter.out.flush();
+            interpreter.reporter.runtimeError(error);
+        }
+    }
+
+    private void execute(final int node) {
+        switch (ast.kind(node)) {
+            case STMT + Stmt.BLOCK -> executeBlock(ast.a(node), new Environment(environment));
+            case STMT + Stmt.CLASS -> executeClass(node);
+            case STMT + Stmt.EXPRESSION -> evaluate(ast.a(node));
+            case STMT + Stmt.FUNCTION ->
+                    environment.define(ast.name(ast.a(node)), new FlatFunction(this, node, environment, false));
+            case STMT + Stmt.IF -> {
+                if (Interpreter.isTruthy(evaluate(ast.a(node)))) {
+                    execute(ast.b(node));
+                } else if (ast.c(node) != NONE) {
+                    execute(ast.c(node));
+                }
+            }
+            case STMT + Stmt.PRINT -> interpreter.out.print(evaluate(ast.a(node)));
+            case STMT + Stmt.RETURN -> throw new Return(ast.a(node) == NONE ? null : evaluate(ast.a(node)));
+            case STMT + Stmt.VAR -> {
+                final Object value = ast.b(node) == NONE ? null : evaluate(ast.b(node));
+                environment.define(ast.name(ast.a(node)), value);
+            }
+            case STMT + Stmt.WHILE -> {
+                while (Interpreter.isTruthy(evaluate(ast.a(node)))) {
+                    execute(ast.b(node));
+                }
+            }
+            default -> throw new IllegalStateException("Unknown statement kind " + ast.kind(node));
+        }
+    }
+
+    private void executeClass(final int node) {
+        LoxClass superclass = null;
+        if (ast.c(node) != NONE) {
+            superclass = Interpreter.superclass(evaluate(ast.c(node)), ast.line(ast.c(node)));
+        }
+
+        final String name = ast.name(ast.a(node));
+        environment.define(name, null);
+
+        if (superclass != null) {
+            environment = new Environment(environment);
+            environment.define("super", superclass);
+        }
+
+        final Map<String, LoxMethod> methods = new HashMap<>();
+        final int body = ast.b(node);
+        for (int i = 1; i < ast.listSize(body); i++) {
+            final int method = ast.listItem(body, i);
+            final String methodName = ast.name(ast.a(method));
+            methods.put(methodName, new FlatFunction(this, method, environment, methodName.equals("init")));
+        }
+        final LoxClass klass = new LoxClass(name, superclass, methods, ast.listItem(body, 0));
+
+        if (superclass != null) {
+            environment = environment.enclosing;
+        }
+
+        environment.assign(name, ast.line(node), klass);
+    }
+
+    void executeBlock(final int list, final Environment environment) {
+        final Environment previous = this.environment;
+        try {
+            this.environment = environment;
+
+            for (int i = 0; i < ast.listSize(list); i++) {
+                execute(ast.listItem(list, i));
+            }
+        } finally {
+            this.environment = previous;
+        }
+    }
+
+    private Object evaluate(final int node) {
+        return switch (ast.kind(node)) {
+            case Expr.ARRAY -> {
+                final int list = ast.a(node);
+                final LoxArray array = new LoxArray(ast.listSize(list));
+                for (int i = 0; i < ast.listSize(list); i++) {
+                    array.add(evaluate(ast.listItem(list, i)));
+                }
+                yield array;
+            }
+            case Expr.ASSIGN -> {
+                final Object value = evaluate(ast.b(node));
+                if (ast.c(node) != NONE) {
+                    environment.assignAt(ast.c(node), ast.name(ast.a(node)), value);
+                } else {
+                    interpreter.globals.assign(ast.name(ast.a(node)), ast.line(node), value);
+                }
+                yield value;
+            }
+            case Expr.BINARY -> {
+                final Object left = evaluate(ast.a(node));
+                final Object right = evaluate(ast.b(node));
+                yield Interpreter.binary(ast.operator(ast.c(node)), ast.line(node), left, right);
+            }
+            case Expr.CALL -> call(node);
+            case Expr.GET -> {
+                final Object object = evaluate(ast.a(node));
+                if (object instanceof LoxInstance instance) {
+                    yield instance.get(ast.name(ast.b(node)), ast.line(node));
+                }
+                throw new RuntimeError(ast.line(node), "Only instances have properties");
+            }
+            case Expr.GROUPING -> evaluate(ast.a(node));
+            case Expr.INDEX -> {
+                final Object array = evaluate(ast.a(node));
+                final Object index = evaluate(ast.b(node));
+                yield ArrayNatives.get(array, index, ast.line(node));
+            }
+            case Expr.INDEX_SET -> {
+                final Object array = evaluate(ast.a(node));
+                final Object index = evaluate(ast.b(node));
+                final Object value = evaluate(ast.c(node));
+                ArrayNatives.set(array, index, value, ast.line(node));
+                yield value;
+            }
+            case Expr.LITERAL -> ast.constant(ast.a(node));
+            case Expr.LOGICAL -> {
+                final Object left = evaluate(ast.a(node));
+                if (ast.operator(ast.c(node)) == TokenType.OR) {
+                    if (Interpreter.isTruthy(left)) {
+                        yield left;
+                    }
+                } else {
+                    if (!Interpreter.isTruthy(left)) {
+                        yield left;
+                    }
+                }
+                yield evaluate(ast.b(node));
+            }
+            case Expr.SET -> {
+                final Object object = evaluate(ast.a(node));
+                if (object instanceof LoxInstance instance) {
+                    final Object value = evaluate(ast.c(node));
+                    instance.set(ast.name(ast.b(node)), value);
+                    yield value;
+                }
+                throw new RuntimeError(ast.line(node), "Only instances have fields (found " +
+                        object.getClass().getName() + ")");
+            }
+            case Expr.SUPER -> {
+                final LoxClass superclass = (LoxClass) environment.getAt(ast.b(node), "super");
+                final LoxInstance object = (LoxInstance) environment.getAt(ast.b(node) - 1, "this");
+                yield Interpreter.superMethod(superclass, object, ast.name(ast.a(node)), ast.line(node));
+            }
+            case Expr.THIS -> environment.getAt(ast.a(node), "this");
+            case Expr.UNARY ->
+                    Interpreter.unary(ast.operator(ast.b(node)), ast.line(node), evaluate(ast.a(node)));
+            case Expr.VARIABLE -> {
+                final String name = ast.name(ast.a(node));
+                if (ast.b(node) != NONE) {
+                    yield environment.getAt(ast.b(node), name);
+                }
+                yield interpreter.globals.get(name, ast.line(node));
+            }
+            default -> throw new IllegalStateException("Unknown expression kind " + ast.kind(node));
+        };
+    }
+
+    private Object call(final int node) {
+        final Object callee = evaluate(ast.a(node));
+
+        final int list = ast.b(node);
+        final List<Object> arguments = new ArrayList<>(ast.listSize(list));
+        for (int i = 0; i < ast.listSize(list); i++) {
+            arguments.add(evaluate(ast.listItem(list, i)));
+        }
+
+        if (callee instanceof LoxCallable function) {
+            if (arguments.size() != function.arity()) {
+                throw new RuntimeError(ast.line(node),
+                        "Expected " + function.arity() + " arguments but got " + arguments.size());
+            }
+            try {
+                return function.call(interpreter, arguments);
+            } catch (final NativeError error) {
+                throw new RuntimeError(ast.line(node), error.getMessage());
+            }
+        }
+        throw new RuntimeError(ast.line(node), "Can only call functions and classes");
+    }
+}
@@ -0,0 +1,83 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The global scope of an {@link Interpreter} and of all of its {@link Interpreter#fork() forks}, so it may be used by
+ * several threads at once. Each global lives in its own cell in a {@link ConcurrentHashMap}: looking a global up does
+ * not lock, and reads and writes of a global's value are volatile, so an assignment made by one task is visible to
+ * every read by any task that happens after it. There is no lock around a read followed by a write; {@code x = x + 1}
+ * run by two tasks at once can lose an update.
+ *
+ * <p>An environment created from a {@link GlobalSnapshot} reads the snapshot for globals it has not written yet and
+ * creates its own cell for a global on the first write, so creating it does not copy the snapshot.
+ */
+final class GlobalEnvironment extends Environment {
+    private static final class Cell {
+        volatile Object value;
+
+        Cell(final Object value) {
+            this.value = value;
+        }
+    }
+
+    private final Map<String, Cell> cells = new ConcurrentHashMap<>();
+    private final Map<String, Object> snapshot;
+
+    GlobalEnvironment() {
+        this.snapshot = Map.of();
+    }
+
+    GlobalEnvironment(final GlobalSnapshot snapshot) {
+        this.snapshot = snapshot.values;
+    }
+
+    GlobalSnapshot snapshot() {
+        final Map<String, Object> values = new HashMap<>(snapshot);
+        cells.forEach((name, cell) -> values.put(name, cell.value));
+        return new GlobalSnapshot(Collections.unmodifiableMap(values));
+    }
+
+    @Override
+    void define(final String name, final Object value) {
+        final Cell cell = cells.get(name);
+        if (cell != null) {
+            cell.value = value;
+            return;
+        }
+        // the new cell holds the value before it is published, so no other task can see the global as nil
+        final Cell existing = cells.putIfAbsent(name, new Cell(value));
+        if (existing != null) {
+            existing.value = value;
+        }
+    }
+
+    @Override
+    Object get(final String name, final int line) {
+        final Cell cell = cells.get(name);
+        if (cell != null) {
+            return cell.value;
+        }
+        if (snapshot.containsKey(name)) {
+            return snapshot.get(name);
+        }
+
+        throw new RuntimeError(line, "Undefined variable '" + name + "'");
+    }
+
+    @Override
+    void assign(final String name, final int line, final Object value) {
+        Cell cell = cells.get(name);
+        if (cell == null) {
+            if (!snapshot.containsKey(name)) {
+                throw new RuntimeError(line,
+                        "Undefined variable '" + name + "'.");
+            }
+            cell = cells.computeIfAbsent(name, key -> new Cell(snapshot.get(key)));
+        }
+        cell.value = value;
+    }
+}
@@ -0,0 +1,16 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Map;
+
+/**
+ * The global variables of a {@link LoxRuntime} at one point in time, used to start new runtimes from them. The map
+ * itself is never modified, so a snapshot can be shared by runtimes on any number of threads. The values are not
+ * copied: instances and closure environments created before the snapshot are shared by every runtime started from it.
+ */
+public final class GlobalSnapshot {
+    final Map<String, Object> values;
+
+    GlobalSnapshot(final Map<String, Object> values) {
+        this.values = values;
+    }
+}
@@ -6,28 +6,59 @@ import java.util.List;
 import java.util.Map;
 
 public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
-    final Environment globals = new Environment();
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
-
-    Interpreter() {
-        globals.define("clock", new LoxCallable() {
-
-            @Override
-            public int arity() {
-                return 0;
-            }
-
-            @Override
-            public Object call(final Interpreter interpreter, final List<Object> arguments) {
-                return (double) System.currentTimeMillis() / 1_000.0;
-            }
-
-            @Override
-            public String toString() {
-                return "<native fn>";
-            }
-        });
+    /**
+     * When the {@code lox.dispatch} system property is {@code switch}, nodes are dispatched with a switch on their
+     * {@code kind} tag instead of through {@code accept}, so the two schemes can be compared on the same workload
+     * (the {@code evaluatorBenchmark} Gradle task does so). Neither wins across the benchmarks, so the visitor stays the
+     * default.
+     */
+    private static final boolean SWITCH_DISPATCH = "switch".equals(System.getProperty("lox.dispatch"));
+
+    final GlobalEnvironment globals;
+    private Environment environment;
+    final ErrorReporter reporter;
+    final LoxOutput out;
+    // evaluators for flat programs declared by other interpreters whose functions this one calls (see
+    // FlatInterpreter#forInterpreter), so that each call does not create one
+    private final Map<FlatAst, FlatInterpreter> flatEvaluators = new HashMap<>();
+
+    Interpreter(final ErrorReporter reporter, final LoxOutput out) {
+        this(reporter, out, new GlobalEnvironment());
+        globals.define("clock", new NativeFunction(0,
+                (interpreter, arguments) -> (double) System.currentTimeMillis() / 1_000.0));
+        Concurrency.define(globals);
+        ArrayNatives.define(globals);
+        MapNatives.define(globals);
+        Parallel.define(globals);
+    }
+
+    /**
+     * Constructs an interpreter whose globals start out as those of the snapshot; the natives are already in it.
+     */
+    Interpreter(final ErrorReporter reporter, final LoxOutput out, final GlobalSnapshot snapshot) {
+        this(reporter, out, new GlobalEnvironment(snapshot));
+    }
+
+    private Interpreter(final ErrorReporter reporter, final LoxOutput out, final GlobalEnvironment globals) {
+        this.reporter = reporter;
+        this.out = out;
+        this.globals = globals;
+        this.environment = globals;
+    }
+
+    /**
+     * Returns an interpreter for running code on another thread: it shares this interpreter's globals, output and
+     * error reporting, but has its own current environment.
+     */
+    Interpreter fork() {
+        return new Interpreter(reporter, out, globals);
+    }
+
+    /**
+     * @return this interpreter's evaluator for the flat program, created on first use
+     */
+    FlatInterpreter flatEvaluator(final FlatAst ast) {
+        return flatEvaluators.computeIfAbsent(ast, key -> new FlatInterpreter(this, key));
     }
 
     void interpret(final List<Stmt> statements) {
@@ -36,16 +67,32 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 execute(statement);
             }
         } catch (final RuntimeError error) {
-            Lox.runtimeError(error);
+            out.flush();
+            reporter.runtimeError(error);
         }
     }
 
     private void execute(final Stmt statement) {
-        statement.accept(this);
+        if (SWITCH_DISPATCH) {
+            dispatch(statement);
+        } else {
+            statement.accept(this);
+        }
     }
 
-    public void resolve(final Expr expr, final int depth) {
-        locals.put(expr, depth);
+    private void dispatch(final Stmt statement) {
+        switch (statement.kind) {
+            case Stmt.BLOCK -> visitBlockStmt((Stmt.Block) statement);
+            case Stmt.CLASS -> visitClassStmt((Stmt.Class) statement);
+            case Stmt.EXPRESSION -> visitExpressionStmt((Stmt.Expression) statement);
+            case Stmt.FUNCTION -> visitFunctionStmt((Stmt.Function) statement);
+            case Stmt.IF -> visitIfStmt((Stmt.If) statement);
+            case Stmt.PRINT -> visitPrintStmt((Stmt.Print) statement);
+            case Stmt.RETURN -> visitReturnStmt((Stmt.Return) statement);
+            case Stmt.VAR -> visitVarStmt((Stmt.Var) statement);
+            case Stmt.WHILE -> visitWhileStmt((Stmt.While) statement);
+            default -> throw new IllegalStateException("Unknown statement kind " + statement.kind);
+        }
     }
 
     @Override
@@ -54,9 +101,33 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     }
 
     private Object evaluate(final Expr expr) {
+        if (SWITCH_DISPATCH) {
+            return dispatch(expr);
+        }
         return expr.accept(this);
     }
 
+    private Object dispatch(final Expr expr) {
+        return switch (expr.kind) {
+            case Expr.ARRAY -> visitArrayExpr((Expr.Array) expr);
+            case Expr.ASSIGN -> visitAssignExpr((Expr.Assign) expr);
+            case Expr.BINARY -> visitBinaryExpr((Expr.Binary) expr);
+            case Expr.CALL -> visitCallExpr((Expr.Call) expr);
+            case Expr.GET -> visitGetExpr((Expr.Get) expr);
+            case Expr.GROUPING -> visitGroupingExpr((Expr.Grouping) expr);
+            case Expr.INDEX -> visitIndexExpr((Expr.Index) expr);
+            case Expr.INDEX_SET -> visitIndexSetExpr((Expr.IndexSet) expr);
+            case Expr.LITERAL -> visitLiteralExpr((Expr.Literal) expr);
+            case Expr.LOGICAL -> visitLogicalExpr((Expr.Logical) expr);
+            case Expr.SET -> visitSetExpr((Expr.Set) expr);
+            case Expr.SUPER -> visitSuperExpr((Expr.Super) expr);
+            case Expr.THIS -> visitThisExpr((Expr.This) expr);
+            case Expr.UNARY -> visitUnaryExpr((Expr.Unary) expr);
+            case Expr.VARIABLE -> visitVariableExpr((Expr.Variable) expr);
+            default -> throw new IllegalStateException("Unknown expression kind " + expr.kind);
+        };
+    }
+
     @Override
     public Object visitLiteralExpr(final Expr.Literal expr) {
         return expr.value;
@@ -92,19 +163,55 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 object.getClass().getName() + ")");
     }
 
+    @Override
+    public Object visitSuperExpr(final Expr.Super expr) {
+        final LoxClass superclass = (LoxClass) environment.getAt(expr.distance, "super");
+        // "this" is always in the environment just inside the one holding "super"
+        final LoxInstance object = (LoxInstance) environment.getAt(expr.distance - 1, "this");
+        return superMethod(superclass, object, expr.method.lexeme(), expr.method.line());
+    }
+
+    /**
+     * Looks up a superclass method and binds it to the instance; shared by both evaluators.
+     */
+    static LoxMethod superMethod(final LoxClass superclass, final LoxInstance object, final String name,
+                                 final int line) {
+        final LoxMethod method = superclass.findMethod(name);
+        if (method == null) {
+            throw new RuntimeError(line, "Undefined property '" + name + "'");
+        }
+        return method.bind(object);
+    }
+
+    /**
+     * Checks the value a class names as its superclass; shared by both evaluators.
+     */
+    static LoxClass superclass(final Object value, final int line) {
+        if (value instanceof LoxClass superclass) {
+            return superclass;
+        }
+        throw new RuntimeError(line, "Superclass must be a class");
+    }
+
     @Override
     public Object visitThisExpr(final Expr.This expr) {
-        return lookupVariable(expr.keyword, expr);
+        return lookupVariable(expr.keyword, expr.distance);
     }
 
     @Override
     public Object visitUnaryExpr(final Expr.Unary expr) {
         final Object right = evaluate(expr.right);
+        return unary(expr.operator.type(), expr.operator.line(), right);
+    }
 
-        return switch (expr.operator.type()) {
+    /**
+     * Applies a unary operator; shared by the tree-walking and the {@link FlatInterpreter flat} evaluators.
+     */
+    static Object unary(final TokenType operator, final int line, final Object right) {
+        return switch (operator) {
             case MINUS -> {
-                checkNumberOperand(expr.operator, right);
-                yield -(double) right;
+                checkNumberOperand(line, right);
+                yield LoxNumber.negate(right);
             }
             case BANG -> !isTruthy(right);
             default ->
@@ -114,14 +221,14 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         };
     }
 
-    private void checkNumberOperand(final Token operator, final Object operand) {
-        if (operand instanceof Double) {
+    private static void checkNumberOperand(final int line, final Object operand) {
+        if (LoxNumber.isNumber(operand)) {
             return;
         }
-        throw new RuntimeError(operator, "Operand must be a number.");
+        throw new RuntimeError(line, "Operand must be a number.");
     }
 
-    private boolean isTruthy(final Object object) {
+    static boolean isTruthy(final Object object) {
         if (object == null) {
             return false;
         }
@@ -135,43 +242,61 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitBinaryExpr(final Expr.Binary expr) {
         final Object left = evaluate(expr.left);
         final Object right = evaluate(expr.right);
+        return binary(expr.operator.type(), expr.operator.line(), left, right);
+    }
 
-        return switch (expr.operator.type()) {
+    /**
+     * Applies a binary operator; shared by the tree-walking and the {@link FlatInterpreter flat} evaluators.
+     */
+    static Object binary(final TokenType operator, final int line, final Object left, final Object right) {
+        return switch (operator) {
             case GREATER -> {
-                checkNumberOperands(expr.operator, left, right);
-                yield (double) left > (double) right;
+                if (left instanceof Integer a && right instanceof Integer b) {
+                    yield a > b;
+                }
+                checkNumberOperands(line, left, right);
+                yield LoxNumber.toDouble(left) > LoxNumber.toDouble(right);
             }
             case GREATER_EQUAL -> {
-                checkNumberOperands(expr.operator, left, right);
-                yield (double) left >= (double) right;
+                if (left instanceof Integer a && right instanceof Integer b) {
+                    yield a >= b;
+                }
+                checkNumberOperands(line, left, right);
+                yield LoxNumber.toDouble(left) >= LoxNumber.toDouble(right);
             }
             case LESS -> {
-                checkNumberOperands(expr.operator, left, right);
-                yield (double) left < (double) right;
+                if (left instanceof Integer a && right instanceof Integer b) {
+                    yield a < b;
+                }
+                checkNumberOperands(line, left, right);
+                yield LoxNumber.toDouble(left) < LoxNumber.toDouble(right);
             }
             case LESS_EQUAL -> {
-                checkNumberOperands(expr.operator, left, right);
-                yield (double) left <= (double) right;
+                if (left instanceof Integer a && right instanceof Integer b) {
+                    yield a <= b;
+                }
+                checkNumberOperands(line, left, right);
+                yield LoxNumber.toDouble(left) <= LoxNumber.toDouble(right);
             }
             case MINUS -> {
-                checkNumberOperands(expr.operator, left, right);
-                yield (double) left - (double) right;
+                checkNumberOperands(line, left, right);
+                yield LoxNumber.subtract(left, right);
             }
             case SLASH -> {
-                checkNumberOperands(expr.operator, left, right);
-                yield (double) left / (double) right;
+                checkNumberOperands(line, left, right);
+                yield LoxNumber.divide(left, right);
             }
             case STAR -> {
-                checkNumberOperands(expr.operator, left, right);
-                yield (double) left * (double) right;
+                checkNumberOperands(line, left, right);
+                yield LoxNumber.multiply(left, right);
             }
             case PLUS -> {
-                if (left instanceof Double d1 && right instanceof Double d2) {
-                    yield d1 + d2;
-                } else if (left instanceof String s1 && right instanceof String s2) {
-                    yield s1 + s2;
+                if (LoxNumber.isNumber(left) && LoxNumber.isNumber(right)) {
+                    yield LoxNumber.add(left, right);
+                } else if (LoxRope.isString(left) && LoxRope.isString(right)) {
+                    yield LoxRope.concat(left, right, line);
                 } else {
-                    throw new RuntimeError(expr.operator,
+                    throw new RuntimeError(line,
                             "Operands must be two numbers or two strings.");
                 }
             }
@@ -185,21 +310,28 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     }
 
-    private void checkNumberOperands(final Token operator, final Object left, final Object right) {
-        if (left instanceof Double && right instanceof Double) {
+    private static void checkNumberOperands(final int line, final Object left, final Object right) {
+        if (LoxNumber.isNumber(left) && LoxNumber.isNumber(right)) {
             return;
         }
 
-        throw new RuntimeError(operator, "Operands must be numbers.");
+        throw new RuntimeError(line, "Operands must be numbers.");
     }
 
-    private boolean isEqual(final Object a, final Object b) {
-        if (a == null && b == null) {
+    static boolean isEqual(final Object a, final Object b) {
+        // also covers nil == nil and equal string literals, which the Scanner pools
+        if (a == b) {
             return true;
         }
         if (a == null) {
             return false;
         }
+        if (LoxNumber.isNumber(a) && LoxNumber.isNumber(b)) {
+            return LoxNumber.equal(a, b);
+        }
+        if ((a instanceof LoxRope || b instanceof LoxRope) && LoxRope.isString(a) && LoxRope.isString(b)) {
+            return LoxRope.equal(a, b);
+        }
 
         return a.equals(b);
     }
@@ -223,7 +355,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Void visitPrintStmt(final Stmt.Print stmt) {
         final Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        out.print(value);
         return null;
     }
 
@@ -253,15 +385,30 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitClassStmt(final Stmt.Class stmt) {
+        LoxClass superclass = null;
+        if (stmt.superclass != null) {
+            superclass = superclass(evaluate(stmt.superclass), stmt.superclass.name.line());
+        }
+
         environment.define(stmt.name.lexeme(), null);
 
-        final Map<String, LoxFunction> methods = new HashMap<>();
+        if (superclass != null) {
+            environment = new Environment(environment);
+            environment.define("super", superclass);
+        }
+
+        final Map<String, LoxMethod> methods = new HashMap<>();
         for (final Stmt.Function method : stmt.methods) {
             final LoxFunction function = new LoxFunction(method, environment, method.name.lexeme().equals("init"));
             methods.put(method.name.lexeme(), function);
         }
 
-        final LoxClass klass = new LoxClass(stmt.name.lexeme(), methods);
+        final LoxClass klass = new LoxClass(stmt.name.lexeme(), superclass, methods, stmt.fieldCount);
+
+        if (superclass != null) {
+            environment = environment.enclosing;
+        }
+
         environment.assign(stmt.name, klass);
         return null;
     }
@@ -298,12 +445,11 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitVariableExpr(final Expr.Variable expr) {
-        return lookupVariable(expr.name, expr);
+        return lookupVariable(expr.name, expr.distance);
     }
 
-    private Object lookupVariable(final Token name, final Expr expr) {
-        final Integer distance = locals.get(expr);
-        if (distance != null) {
+    private Object lookupVariable(final Token name, final int distance) {
+        if (distance >= 0) {
             return environment.getAt(distance, name.lexeme());
         } else {
             return globals.get(name);
@@ -314,9 +460,8 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitAssignExpr(final Expr.Assign expr) {
         final Object value = evaluate(expr.value);
 
-        final Integer distance = locals.get(expr);
-        if (distance != null) {
-            environment.assignAt(distance, expr.name, value);
+        if (expr.distance >= 0) {
+            environment.assignAt(expr.distance, expr.name, value);
         } else {
             globals.assign(expr.name, value);
         }
@@ -328,18 +473,48 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitCallExpr(final Expr.Call expr) {
         final Object callee = evaluate(expr.callee);
 
-        final List<Object> arguments = new ArrayList<>();
+        final List<Object> arguments = new ArrayList<>(expr.arguments.size());
         for (final Expr argument : expr.arguments) {
             arguments.add(evaluate(argument));
         }
 
         if (callee instanceof LoxCallable function) {
             if (arguments.size() != function.arity()) {
-                throw new RuntimeError(expr.paren, "Expected " + function.arity() + " arguments but got " + arguments.size());
+                throw new RuntimeError(expr.paren.line(),
+                        "Expected " + function.arity() + " arguments but got " + arguments.size());
+            }
+            try {
+                return function.call(this, arguments);
+            } catch (final NativeError error) {
+                throw new RuntimeError(expr.paren.line(), error.getMessage());
             }
-            return function.call(this, arguments);
         }
-        throw new RuntimeError(expr.paren, "Can only call functions and classes");
+        throw new RuntimeError(expr.paren.line(), "Can only call functions and classes");
+    }
+
+    @Override
+    public Object visitArrayExpr(final Expr.Array expr) {
+        final LoxArray array = new LoxArray(expr.elements.size());
+        for (final Expr element : expr.elements) {
+            array.add(evaluate(element));
+        }
+        return array;
+    }
+
+    @Override
+    public Object visitIndexExpr(final Expr.Index expr) {
+        final Object array = evaluate(expr.object);
+        final Object index = evaluate(expr.index);
+        return ArrayNatives.get(array, index, expr.bracket.line());
+    }
+
+    @Override
+    public Object visitIndexSetExpr(final Expr.IndexSet expr) {
+        final Object array = evaluate(expr.object);
+        final Object index = evaluate(expr.index);
+        final Object value = evaluate(expr.value);
+        ArrayNatives.set(array, index, value, expr.bracket.line());
+        return value;
     }
 
     @Override
@@ -351,16 +526,12 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         throw new RuntimeError(expr.name, "Only instances have properties");
     }
 
-    private String stringify(final Object object) {
+    static String stringify(final Object object) {
         if (object == null) {
             return "nil";
         }
-        if (object instanceof Double) {
-            String text = object.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
-            }
-            return text;
+        if (LoxNumber.isNumber(object)) {
+            return NumberFormatter.toString(LoxNumber.toDouble(object));
         }
 
         return object.toString();
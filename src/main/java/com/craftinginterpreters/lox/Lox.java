@@ -8,9 +8,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
-
-import static com.craftinginterpreters.lox.TokenType.EOF;
 
 public class Lox {
 
@@ -21,22 +18,26 @@ public class Lox {
     public static final int SOFTWARE_ERROR_CODE = 70;
     public static final String PROMPT = "> ";
     private static final Charset CHARSET = StandardCharsets.UTF_8;
-    private static boolean hadError;
-    private static boolean hadRuntimeError;
-    private static final Interpreter interpreter = new Interpreter();
 
     public static void main(final String[] args) throws IOException {
+        final LoxRuntime runtime = new LoxRuntime();
         if (args.length > 1) {
             System.out.println(Lox.USAGE);
             System.exit(USAGE_ERROR_CODE);
         } else if (args.length == 1) {
-            runFile(Paths.get(args[0]));
+            runFile(runtime, Paths.get(args[0]));
         } else {
-            runPrompt();
+            runPrompt(runtime);
         }
+        finish(runtime);
+    }
+
+    private static void finish(final LoxRuntime runtime) {
+        runtime.flush();
+        runtime.printMemoStatistics(System.err);
     }
 
-    private static void runPrompt() throws IOException {
+    private static void runPrompt(final LoxRuntime runtime) throws IOException {
         final InputStreamReader input = new InputStreamReader(System.in);
         final BufferedReader reader = new BufferedReader(input);
         while (true) {
@@ -45,64 +46,19 @@ public class Lox {
             if (line == null) {
                 break;
             }
-            run(line);
+            exitOnError(runtime, runtime.run(line));
         }
     }
 
-    private static void runFile(final Path file) throws IOException {
+    private static void runFile(final LoxRuntime runtime, final Path file) throws IOException {
         final byte[] bytes = Files.readAllBytes(file);
-        run(new String(bytes, CHARSET));
-        hadError = false;
+        exitOnError(runtime, runtime.run(new String(bytes, CHARSET)));
     }
 
-    private static void run(final String source) {
-        final Scanner scanner = new Scanner(source);
-        final List<Token> tokens = scanner.scanTokens();
-
-        final Parser parser = new Parser(tokens);
-        final List<Stmt> statements = parser.parse();
-
-        // stop if there was a parse error
-        if (hadError) {
-            System.exit(DATA_ERROR_CODE);
-        }
-
-        final Resolver resolver = new Resolver(interpreter);
-        resolver.resolve(statements);
-
-        // stop if there was a resolution error
-        if (hadError) {
-            System.exit(DATA_ERROR_CODE);
-        }
-
-        interpreter.interpret(statements);
-
-        // report if an error occurred while running
-        if (hadRuntimeError) {
-            System.exit(SOFTWARE_ERROR_CODE);
+    private static void exitOnError(final LoxRuntime runtime, final int status) {
+        if (status != 0) {
+            finish(runtime);
+            System.exit(status);
         }
     }
-
-    static void error(final int line, final String message) {
-        report(line, "", message);
-    }
-
-    private static void report(final int line, final String where, final String message) {
-        System.err.println("[Line " + line + "] Error" + where + ": " + message);
-        hadError = true;
-    }
-
-    static void error(final Token token, final String message) {
-        if (token.type() == EOF) {
-            report(token.line(), " at end", message);
-        } else {
-            report(token.line(), " at '" + token.lexeme() + "'", message);
-        }
-    }
-
-    public static void runtimeError(final RuntimeError error) {
-        System.err.println(error.getMessage() +
-                "\n[line " + error.token.line() + "]");
-        hadRuntimeError = true;
-    }
 }
@@ -0,0 +1,95 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Arrays;
+
+/**
+ * The built-in growable array type. While every element is a number, the elements are stored unboxed in a
+ * {@code double[]}; the first non-number stored switches the array to an {@code Object[]} for good. Numbers read back
+ * out are in the form {@link LoxNumber#valueOf} gives them, so integral elements keep the int fast path.
+ */
+final class LoxArray {
+    private static final int MIN_CAPACITY = 8;
+
+    // exactly one of these is in use
+    private double[] numbers;
+    private Object[] objects;
+    private int size;
+
+    LoxArray() {
+        this(MIN_CAPACITY);
+    }
+
+    LoxArray(final int capacity) {
+        this.numbers = new double[Math.max(capacity, MIN_CAPACITY)];
+    }
+
+    /**
+     * @return an array holding the given elements, specialized to numbers if they all are
+     */
+    static LoxArray of(final Object[] elements) {
+        final LoxArray array = new LoxArray(elements.length);
+        for (final Object element : elements) {
+            array.add(element);
+        }
+        return array;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(final int index) {
+        if (numbers != null) {
+            return LoxNumber.valueOf(numbers[index]);
+        }
+        return objects[index];
+    }
+
+    void set(final int index, final Object value) {
+        if (numbers != null) {
+            if (value instanceof Double number) {
+                numbers[index] = number;
+                return;
+            }
+            if (value instanceof Integer number) {
+                numbers[index] = number;
+                return;
+            }
+            generalize();
+        }
+        objects[index] = value;
+    }
+
+    void add(final Object value) {
+        final int capacity = numbers != null ? numbers.length : objects.length;
+        if (size == capacity) {
+            if (numbers != null) {
+                numbers = Arrays.copyOf(numbers, capacity * 2);
+            } else {
+                objects = Arrays.copyOf(objects, capacity * 2);
+            }
+        }
+        size++;
+        set(size - 1, value);
+    }
+
+    private void generalize() {
+        objects = new Object[numbers.length];
+        for (int i = 0; i < size; i++) {
+            objects[i] = LoxNumber.valueOf(numbers[i]);
+        }
+        numbers = null;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(Interpreter.stringify(get(i)));
+        }
+        return builder.append("]").toString();
+    }
+}
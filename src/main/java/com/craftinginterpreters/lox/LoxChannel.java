@@ -0,0 +1,33 @@
+package com.craftinginterpreters.lox;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded FIFO channel between tasks, created by the {@code channel} native. Sending to a full channel and receiving
+ * from an empty one block.
+ */
+final class LoxChannel {
+    // the queue does not accept null, so nil travels as this marker
+    private static final Object NIL = new Object();
+
+    private final BlockingQueue<Object> queue;
+
+    LoxChannel(final int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    void send(final Object value) throws InterruptedException {
+        queue.put(value == null ? NIL : value);
+    }
+
+    Object receive() throws InterruptedException {
+        final Object value = queue.take();
+        return value == NIL ? null : value;
+    }
+
+    @Override
+    public String toString() {
+        return "<channel>";
+    }
+}
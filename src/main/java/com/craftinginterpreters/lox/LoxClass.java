@@ -1,23 +1,51 @@
 package com.craftinginterpreters.lox;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class LoxClass implements LoxCallable {
     private final String name;
-    private final Map<String, LoxFunction> methods;
+    private final Map<String, LoxMethod> methods;
+    // looked up once here rather than on every instantiation
+    private final LoxMethod initializer;
+    private final int fieldCount;
 
-    public LoxClass(final String name, final Map<String, LoxFunction> methods) {
+    /**
+     * @param superclass the class to inherit from, or null
+     * @param methods the methods the class declares itself
+     * @param fieldCount how many fields the class's own initializer assigns, used with the superclass's count to size
+     *                   instances' field storage; only an estimate, as fields can be added anywhere
+     */
+    public LoxClass(final String name, final LoxClass superclass, final Map<String, LoxMethod> methods,
+                    final int fieldCount) {
         this.name = name;
-        this.methods = methods;
+        if (superclass == null) {
+            this.methods = methods;
+            this.fieldCount = fieldCount;
+        } else {
+            // copy the inherited methods down, so that lookup is one hash probe however deep the hierarchy is
+            this.methods = new HashMap<>(superclass.methods);
+            this.methods.putAll(methods);
+            // a subclass's initializer usually adds its fields to those the superclass's initializer assigns
+            this.fieldCount = fieldCount + superclass.fieldCount;
+        }
+        this.initializer = this.methods.get("init");
     }
 
-    public LoxFunction findMethod(final String name) {
-        if (methods.containsKey(name)) {
-            return methods.get(name);
-        }
+    public LoxMethod findMethod(final String name) {
+        return methods.get(name);
+    }
+
+    /**
+     * @return the {@code init} method, or null if the class has none
+     */
+    LoxMethod initializer() {
+        return initializer;
+    }
 
-        return null;
+    int fieldCount() {
+        return fieldCount;
     }
 
     @Override
@@ -27,7 +55,6 @@ public class LoxClass implements LoxCallable {
 
     @Override
     public int arity() {
-        final LoxFunction initializer = findMethod("init");
         if (initializer == null) {
             return 0;
         }
@@ -37,9 +64,8 @@ public class LoxClass implements LoxCallable {
     @Override
     public Object call(final Interpreter interpreter, final List<Object> arguments) {
         final LoxInstance instance = new LoxInstance(this);
-        final LoxFunction initializer = findMethod("init");
         if (initializer != null) {
-            initializer.bind(instance).call(interpreter, arguments);
+            initializer.callOn(instance, interpreter, arguments);
         }
         return instance;
     }
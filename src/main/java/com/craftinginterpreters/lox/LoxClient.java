@@ -0,0 +1,93 @@
+package com.craftinginterpreters.lox;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Runs a script on a {@link LoxDaemon}: sends the script (read from the given file, or from stdin when no file is
+ * given), copies the script's output to stdout and stderr and exits with the script's status. When no daemon is
+ * listening, the script is run in this process instead.
+ *
+ * <p>Usage: {@code jlox-client [script]}; the daemon's socket is taken from the {@code lox.socket} system property,
+ * as for the daemon (see {@link DaemonProtocol#defaultAddress()}). Scripts run with the daemon's {@code lox.*} options,
+ * not the client's.
+ *
+ * <p>The client is itself a JVM, so it still pays JVM startup (though not the interpreter's class loading and warm-up,
+ * which is most of a short script's run time); {@code bin/jlox-client} starts it with flags that minimize that cost.
+ * Avoiding JVM startup entirely would take a native client.
+ */
+public class LoxClient {
+    private static final String USAGE = "Usage: jlox-client [script]";
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length > 1) {
+            System.err.println(USAGE);
+            System.exit(Lox.USAGE_ERROR_CODE);
+        }
+        final byte[] source = args.length == 1 ? Files.readAllBytes(Paths.get(args[0])) : System.in.readAllBytes();
+
+        final SocketChannel channel;
+        try {
+            final UnixDomainSocketAddress address = DaemonProtocol.defaultAddress();
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(address);
+        } catch (final IOException e) {
+            if (!(e instanceof SocketException)) {
+                // not just "no daemon": the socket's directory is unsafe, say
+                System.err.println("jlox-client: not using the daemon: " + e.getMessage());
+            }
+            // no daemon; run locally
+            System.exit(new LoxRuntime().run(new String(source, StandardCharsets.UTF_8)));
+            return;
+        }
+        warnAboutIgnoredOptions();
+
+        try (channel) {
+            final DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            DaemonProtocol.writeBlock(out, source);
+            out.flush();
+
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            while (true) {
+                final byte type = in.readByte();
+                if (type == DaemonProtocol.EXIT) {
+                    System.out.flush();
+                    System.exit(in.readInt());
+                }
+                final byte[] bytes = DaemonProtocol.readBlock(in);
+                if (type == DaemonProtocol.STDOUT) {
+                    System.out.write(bytes);
+                } else {
+                    System.err.write(bytes);
+                }
+            }
+        } catch (final IOException e) {
+            // the daemon went away (or closed the connection) before sending the exit status
+            System.out.flush();
+            System.err.println("jlox-client: lost connection to the daemon: " + e);
+            System.exit(Lox.SOFTWARE_ERROR_CODE);
+        }
+    }
+
+    /**
+     * The daemon runs scripts with the {@code lox.*} options it was started with, so options given to the client
+     * (other than where the socket is) have no effect on it.
+     */
+    private static void warnAboutIgnoredOptions() {
+        for (final String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("lox.") && !name.equals("lox.socket")) {
+                System.err.println("jlox-client: -D" + name + " is ignored; the daemon's options apply");
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.craftinginterpreters.lox;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps one warmed-up JVM running and executes scripts sent by {@link LoxClient} over a Unix domain socket, so that
+ * short scripts do not pay for JVM startup and interpreter warm-up on every invocation. Each request runs in its own
+ * {@link LoxRuntime}, so scripts do not see each other's globals.
+ *
+ * <p>Usage: {@code jlox-daemon [socket path]}; without a path, {@link DaemonProtocol#defaultAddress()} is used.
+ */
+public class LoxDaemon {
+    private static final String USAGE = "Usage: jlox-daemon [socket path]";
+    // see "man sysexits"
+    private static final int UNAVAILABLE_ERROR_CODE = 69;
+    // the file type bits of st_mode, and their value for a socket; see "man inode"
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length > 1) {
+            System.err.println(USAGE);
+            System.exit(Lox.USAGE_ERROR_CODE);
+        }
+        final UnixDomainSocketAddress address;
+        try {
+            address = args.length == 1 ? UnixDomainSocketAddress.of(args[0]) : DaemonProtocol.defaultAddress();
+        } catch (final IOException e) {
+            System.err.println("jlox-daemon: " + e.getMessage());
+            System.exit(UNAVAILABLE_ERROR_CODE);
+            return;
+        }
+
+        if (isListening(address)) {
+            System.err.println("jlox-daemon: a daemon is already listening on " + address.getPath());
+            System.exit(UNAVAILABLE_ERROR_CODE);
+        }
+        // a socket left behind by a daemon that has exited would make bind() fail
+        if (isSocket(address.getPath())) {
+            Files.delete(address.getPath());
+        }
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(address);
+            address.getPath().toFile().deleteOnExit();
+            while (true) {
+                final SocketChannel client = server.accept();
+                executor.execute(() -> serve(client));
+            }
+        }
+    }
+
+    private static boolean isListening(final UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isSocket(final Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        final int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+        return (mode & S_IFMT) == S_IFSOCK;
+    }
+
+    private static void serve(final SocketChannel client) {
+        try (client) {
+            final DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+            final String source = new String(DaemonProtocol.readBlock(in), StandardCharsets.UTF_8);
+
+            final LoxOutput scriptOut = new LoxOutput(new OutputStreamWriter(
+                    new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDOUT), StandardCharsets.UTF_8),
+                    LoxOutput.FlushPolicy.BUFFERED);
+            final PrintStream scriptErr = new PrintStream(new BufferedOutputStream(
+                    new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDERR)), false, StandardCharsets.UTF_8);
+            final int status = run(source, scriptOut, scriptErr);
+            scriptOut.flush();
+            scriptErr.flush();
+
+            out.writeByte(DaemonProtocol.EXIT);
+            out.writeInt(status);
+            out.flush();
+        } catch (final EOFException e) {
+            // a connection that sent no script, such as another daemon checking whether this one is running
+        } catch (final IOException e) {
+            System.err.println("jlox-daemon: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a script, turning failures the runtime does not report itself (a Java stack overflow from deep recursion,
+     * or an interpreter bug) into an error message and status, so that the client still gets the script's output and
+     * an exit status and the pool thread survives.
+     */
+    private static int run(final String source, final LoxOutput out, final PrintStream err) {
+        try {
+            return new LoxRuntime(out, err).run(source);
+        } catch (final StackOverflowError e) {
+            err.println("Stack overflow.");
+        } catch (final RuntimeException e) {
+            err.println("Internal error: " + e);
+            e.printStackTrace();
+        }
+        return Lox.SOFTWARE_ERROR_CODE;
+    }
+}
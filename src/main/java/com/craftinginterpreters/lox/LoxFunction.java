@@ -2,7 +2,7 @@ package com.craftinginterpreters.lox;
 
 import java.util.List;
 
-public class LoxFunction implements LoxCallable {
+public class LoxFunction implements LoxMethod {
 
     private final Stmt.Function declaration;
     private final Environment closure;
@@ -21,25 +21,69 @@ public class LoxFunction implements LoxCallable {
 
     @Override
     public Object call(final Interpreter interpreter, final List<Object> arguments) {
+        final MemoTable memo = declaration.memo;
+        if (memo != null) {
+            return memoized(memo, closure, interpreter, arguments);
+        }
+        // the same as execute(closure, ...), inlined so that a Lox call costs one Java frame fewer
+        try {
+            interpreter.executeBlock(declaration.body, parameters(closure, arguments));
+        } catch (final Return returnValue) {
+            return result(closure, returnValue.value);
+        }
+        return result(closure, null);
+    }
+
+    @Override
+    public Object callOn(final LoxInstance instance, final Interpreter interpreter, final List<Object> arguments) {
         final Environment environment = new Environment(closure);
-        for (int i = 0; i < arity(); i++) {
-            environment.define(declaration.params.get(i).lexeme(), arguments.get(i));
+        environment.define("this", instance);
+        final MemoTable memo = declaration.memo;
+        if (memo == null) {
+            return execute(environment, interpreter, arguments);
+        }
+        return memoized(memo, environment, interpreter, arguments);
+    }
+
+    private Object memoized(final MemoTable memo, final Environment closure, final Interpreter interpreter,
+                            final List<Object> arguments) {
+        final Object key = MemoTable.key(arguments);
+        if (key == null) {
+            return execute(closure, interpreter, arguments);
+        }
+        Object result = memo.get(key);
+        if (result == MemoTable.MISSING) {
+            result = execute(closure, interpreter, arguments);
+            memo.put(key, result);
         }
+        return result;
+    }
 
+    private Object execute(final Environment closure, final Interpreter interpreter, final List<Object> arguments) {
         try {
-            interpreter.executeBlock(declaration.body, environment);
+            interpreter.executeBlock(declaration.body, parameters(closure, arguments));
         } catch (final Return returnValue) {
-            if (isInitializer) {
-                return closure.getAt(0, "this");
-            }
-            return returnValue.value;
+            return result(closure, returnValue.value);
+        }
+        return result(closure, null);
+    }
+
+    private Environment parameters(final Environment closure, final List<Object> arguments) {
+        final Environment environment = new Environment(closure);
+        for (int i = 0; i < arity(); i++) {
+            environment.define(declaration.params.get(i).lexeme(), arguments.get(i));
         }
+        return environment;
+    }
 
+    /**
+     * @return what a call returns, given the value returned by the body (null if it finished without a return)
+     */
+    private Object result(final Environment closure, final Object returned) {
         if (isInitializer) {
             return closure.getAt(0, "this");
         }
-
-        return null;
+        return returned;
     }
 
     @Override
@@ -47,6 +91,7 @@ public class LoxFunction implements LoxCallable {
         return "<fn " + declaration.name.lexeme() + ">";
     }
 
+    @Override
     public LoxFunction bind(final LoxInstance instance) {
         final Environment environment = new Environment(closure);
         environment.define("this", instance);
@@ -5,10 +5,13 @@ import java.util.Map;
 
 public class LoxInstance {
     private final LoxClass klass;
-    private final Map<String, Object> fields = new HashMap<>();
+    private final Map<String, Object> fields;
 
     public LoxInstance(final LoxClass klass) {
         this.klass = klass;
+        // room for the fields the initializer assigns without rehashing, at the default load factor
+        final int expected = klass.fieldCount();
+        this.fields = expected == 0 ? new HashMap<>() : new HashMap<>(expected * 4 / 3 + 1);
     }
 
     @Override
@@ -17,17 +20,25 @@ public class LoxInstance {
     }
 
     public Object get(final Token name) {
-        if (fields.containsKey(name.lexeme())) {
-            return fields.get(name.lexeme());
+        return get(name.lexeme(), name.line());
+    }
+
+    Object get(final String name, final int line) {
+        if (fields.containsKey(name)) {
+            return fields.get(name);
         }
-        final LoxFunction method = klass.findMethod(name.lexeme());
+        final LoxMethod method = klass.findMethod(name);
         if (method != null) {
             return method.bind(this);
         }
-        throw new RuntimeError(name, "Undefined property '" + name.lexeme() + "'");
+        throw new RuntimeError(line, "Undefined property '" + name + "'");
     }
 
     public void set(final Token name, final Object value) {
-        fields.put(name.lexeme(), value);
+        set(name.lexeme(), value);
+    }
+
+    void set(final String name, final Object value) {
+        fields.put(name, value);
     }
 }
@@ -0,0 +1,185 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Arrays;
+
+/**
+ * The built-in map type. Entries live in insertion order in parallel arrays (key, value and cached hash); a separate
+ * open-addressing table of entry indexes, probed linearly, finds them by key. Removing an entry leaves a hole in the
+ * entry arrays that is squeezed out the next time they grow, so iteration order is always insertion order.
+ *
+ * <p>Keys compare like Lox {@code ==}, so a rope and a flat string with the same characters are the same key. Strings and numbers, the usual keys, are hashed without allocating: strings
+ * cache their own hash and a number is hashed straight from its bits.
+ */
+final class LoxMap {
+    private static final int MIN_CAPACITY = 8;
+    // marks the key of a removed entry
+    private static final Object REMOVED = new Object();
+    private static final int EMPTY = -1;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    // entries used, including removed ones
+    private int count;
+    private int size;
+    // entry index per slot, or EMPTY; always at most half full
+    private int[] table;
+
+    LoxMap() {
+        keys = new Object[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+        hashes = new int[MIN_CAPACITY];
+        table = newTable(MIN_CAPACITY * 2);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(final Object key) {
+        final int entry = find(key, hash(key));
+        return entry == EMPTY ? null : values[entry];
+    }
+
+    boolean containsKey(final Object key) {
+        return find(key, hash(key)) != EMPTY;
+    }
+
+    void put(final Object key, final Object value) {
+        final int hash = hash(key);
+        final int entry = find(key, hash);
+        if (entry != EMPTY) {
+            values[entry] = value;
+            return;
+        }
+        if (count == keys.length) {
+            grow();
+        }
+        // a rope key is stored flat so that it is copied once rather than on every lookup
+        keys[count] = LoxRope.flatten(key);
+        values[count] = value;
+        hashes[count] = hash;
+        insert(count, hash);
+        count++;
+        size++;
+    }
+
+    /**
+     * @return the value that was stored under the key, or null if there was none
+     */
+    Object remove(final Object key) {
+        final int entry = find(key, hash(key));
+        if (entry == EMPTY) {
+            return null;
+        }
+        final Object value = values[entry];
+        keys[entry] = REMOVED;
+        values[entry] = null;
+        size--;
+        return value;
+    }
+
+    /**
+     * @return the keys in insertion order
+     */
+    LoxArray keys() {
+        final Object[] result = new Object[size];
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            if (keys[i] != REMOVED) {
+                result[next++] = keys[i];
+            }
+        }
+        return LoxArray.of(result);
+    }
+
+    private int find(final Object key, final int hash) {
+        final int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            final int entry = table[slot];
+            if (entry == EMPTY) {
+                return EMPTY;
+            }
+            if (hashes[entry] == hash && Interpreter.isEqual(keys[entry], key)) {
+                return entry;
+            }
+        }
+    }
+
+    private void insert(final int entry, final int hash) {
+        final int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry;
+    }
+
+    /**
+     * Makes room for another entry, dropping removed entries and doubling the storage only when most entries are live.
+     * The table is rebuilt either way, which also clears the slots of removed entries.
+     */
+    private void grow() {
+        final int capacity = size * 2 >= keys.length ? keys.length * 2 : keys.length;
+        final Object[] newKeys = new Object[capacity];
+        final Object[] newValues = new Object[capacity];
+        final int[] newHashes = new int[capacity];
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            if (keys[i] != REMOVED) {
+                newKeys[next] = keys[i];
+                newValues[next] = values[i];
+                newHashes[next] = hashes[i];
+                next++;
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+        hashes = newHashes;
+        count = next;
+        table = newTable(capacity * 2);
+        for (int i = 0; i < count; i++) {
+            insert(i, hashes[i]);
+        }
+    }
+
+    private static int[] newTable(final int length) {
+        final int[] table = new int[length];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(final Object key) {
+        final int hash;
+        if (LoxNumber.isNumber(key)) {
+            // the same bits Double.hashCode uses, so that equal keys hash equally whichever way they are held
+            final long bits = Double.doubleToLongBits(LoxNumber.toDouble(key));
+            hash = (int) (bits ^ (bits >>> 32));
+        } else if (key instanceof LoxRope rope) {
+            hash = rope.toString().hashCode();
+        } else if (key == null) {
+            hash = 0;
+        } else {
+            hash = key.hashCode();
+        }
+        // spread the high bits, as small integral doubles differ only there
+        return hash ^ (hash >>> 16) ^ (hash >>> 24);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        boolean first = true;
+        for (int i = 0; i < count; i++) {
+            if (keys[i] == REMOVED) {
+                continue;
+            }
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(Interpreter.stringify(keys[i])).append(": ").append(Interpreter.stringify(values[i]));
+        }
+        return builder.append("}").toString();
+    }
+}
@@ -0,0 +1,18 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * A callable that can be stored in a {@link LoxClass} and bound to an instance to become a method.
+ */
+public interface LoxMethod extends LoxCallable {
+    LoxMethod bind(LoxInstance instance);
+
+    /**
+     * Calls the method on an instance; the same as {@code bind(instance).call(interpreter, arguments)}, which
+     * implementations can do without creating the bound method.
+     */
+    default Object callOn(final LoxInstance instance, final Interpreter interpreter, final List<Object> arguments) {
+        return bind(instance).call(interpreter, arguments);
+    }
+}
@@ -0,0 +1,100 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * Arithmetic on Lox numbers. A Lox number is a double, but integral values that fit in an int may also be held as an
+ * {@link Integer}: integer literals are scanned that way and integer operations keep them so while their result is
+ * exactly representable, falling back to a {@link Double} on overflow, a fractional result or a negative zero (which
+ * an int cannot hold). The two representations are interchangeable; every operation gives the same result for
+ * either, so the choice is never visible to a program.
+ */
+final class LoxNumber {
+    private LoxNumber() {
+    }
+
+    static boolean isNumber(final Object value) {
+        return value instanceof Integer || value instanceof Double;
+    }
+
+    static double toDouble(final Object number) {
+        if (number instanceof Integer integer) {
+            return integer;
+        }
+        return (double) number;
+    }
+
+    static Object negate(final Object number) {
+        if (number instanceof Integer integer) {
+            final int value = integer;
+            if (value == 0 || value == Integer.MIN_VALUE) {
+                return -(double) value;
+            }
+            return -value;
+        }
+        return -(double) number;
+    }
+
+    static Object add(final Object left, final Object right) {
+        if (left instanceof Integer a && right instanceof Integer b) {
+            return exact((long) a + b);
+        }
+        return toDouble(left) + toDouble(right);
+    }
+
+    static Object subtract(final Object left, final Object right) {
+        if (left instanceof Integer a && right instanceof Integer b) {
+            return exact((long) a - b);
+        }
+        return toDouble(left) - toDouble(right);
+    }
+
+    static Object multiply(final Object left, final Object right) {
+        if (left instanceof Integer a && right instanceof Integer b) {
+            final long product = (long) a * b;
+            if (product == 0 && (a < 0 || b < 0)) {
+                return -0.0;
+            }
+            return exact(product);
+        }
+        return toDouble(left) * toDouble(right);
+    }
+
+    static Object divide(final Object left, final Object right) {
+        if (left instanceof Integer a && right instanceof Integer b && b != 0 && a % b == 0) {
+            if (a == 0 && b < 0) {
+                return -0.0;
+            }
+            return exact((long) a / b);
+        }
+        return toDouble(left) / toDouble(right);
+    }
+
+    /**
+     * Compares two numbers the way {@link Double#equals} does, so {@code NaN} equals itself and {@code 0} differs from
+     * {@code -0}.
+     */
+    static boolean equal(final Object left, final Object right) {
+        if (left instanceof Integer a && right instanceof Integer b) {
+            return a.intValue() == b.intValue();
+        }
+        return Double.doubleToLongBits(toDouble(left)) == Double.doubleToLongBits(toDouble(right));
+    }
+
+    /**
+     * @return the number as an {@link Integer} if an int holds it exactly, otherwise as a {@link Double}
+     */
+    static Object valueOf(final double value) {
+        final int integer = (int) value;
+        // an int cannot hold negative zero, which compares equal to 0
+        if (integer == value && (integer != 0 || Double.doubleToRawLongBits(value) == 0)) {
+            return integer;
+        }
+        return value;
+    }
+
+    private static Object exact(final long value) {
+        if (value == (int) value) {
+            return (int) value;
+        }
+        return (double) value;
+    }
+}
@@ -0,0 +1,142 @@
+package com.craftinginterpreters.lox;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Where {@code print} writes. Lines are collected in a large buffer and handed to the underlying {@link Writer} in
+ * bulk, either when the buffer fills up or, depending on the {@link FlushPolicy}, after every line. The runtime also
+ * flushes it when a program finishes and before it reports a runtime error, so output and errors stay in order.
+ *
+ * <p>Tasks running on other threads share their runtime's output; each line is written atomically. Like
+ * {@link java.io.PrintStream}, a failed write (a closed pipe, say) is not an error for the program: the output is
+ * dropped and {@link #checkError()} reports it.
+ */
+public final class LoxOutput implements Flushable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public enum FlushPolicy {
+        /**
+         * Flush only when the buffer is full, a program finishes or a runtime error is reported.
+         */
+        BUFFERED,
+        /**
+         * Also flush after every line, for interactive use.
+         */
+        LINE
+    }
+
+    private final Writer writer;
+    private final FlushPolicy policy;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int length;
+    private boolean failed;
+
+    public LoxOutput(final Writer writer, final FlushPolicy policy) {
+        this.writer = writer;
+        this.policy = policy;
+    }
+
+    /**
+     * Creates an output that writes straight to the process's standard output, bypassing {@link System#out}'s
+     * per-call locking and auto-flushing. Output is line-buffered when the {@code lox.flush} system property is
+     * {@code line}, or when it is unset and standard output is a terminal; it is fully buffered otherwise.
+     */
+    public static LoxOutput standardOutput() {
+        final String property = System.getProperty("lox.flush");
+        final boolean lineBuffered = property == null ? System.console() != null : property.equals("line");
+        return new LoxOutput(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), Charset.defaultCharset()),
+                lineBuffered ? FlushPolicy.LINE : FlushPolicy.BUFFERED);
+    }
+
+    /**
+     * Writes a Lox value the way {@code print} shows it, followed by a newline. Numbers are formatted straight into
+     * the buffer.
+     */
+    void print(final Object value) {
+        if (LoxNumber.isNumber(value)) {
+            printNumber(LoxNumber.toDouble(value));
+        } else {
+            println(Interpreter.stringify(value));
+        }
+    }
+
+    private synchronized void printNumber(final double number) {
+        if (NumberFormatter.MAX_LENGTH + 1 > buffer.length - length) {
+            flushBuffer();
+        }
+        length = NumberFormatter.format(number, buffer, length);
+        buffer[length++] = '\n';
+        if (policy == FlushPolicy.LINE) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the text followed by a newline.
+     */
+    synchronized void println(final String text) {
+        if (text.length() >= buffer.length) {
+            flushBuffer();
+            write(text);
+        } else {
+            if (text.length() > buffer.length - length) {
+                flushBuffer();
+            }
+            text.getChars(0, text.length(), buffer, length);
+            length += text.length();
+        }
+        if (length == buffer.length) {
+            flushBuffer();
+        }
+        buffer[length++] = '\n';
+        if (policy == FlushPolicy.LINE) {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        flushBuffer();
+        if (!failed) {
+            try {
+                writer.flush();
+            } catch (final IOException e) {
+                failed = true;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if writing to the underlying writer has failed; output since then has been dropped
+     */
+    public synchronized boolean checkError() {
+        return failed;
+    }
+
+    private void flushBuffer() {
+        if (length > 0 && !failed) {
+            try {
+                writer.write(buffer, 0, length);
+            } catch (final IOException e) {
+                failed = true;
+            }
+        }
+        length = 0;
+    }
+
+    private void write(final String text) {
+        if (!failed) {
+            try {
+                writer.write(text);
+            } catch (final IOException e) {
+                failed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.craftinginterpreters.lox;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A Lox string built by {@code +} that has not been copied yet: the concatenation of two pieces, each a
+ * {@link String} or another rope. Concatenating onto a rope is constant-time, so building a string in a loop is
+ * linear overall; the characters are copied once, when the string is first needed as a whole (printing, equality,
+ * map keys).
+ *
+ * <p>Once a rope has been flattened it drops its pieces, so it holds either its pieces or its flat string, never
+ * both. A rope therefore keeps at most its own length in characters alive (plus what its pieces hold until then),
+ * and a loop that appends and uses the whole string each time retains only the latest string rather than every
+ * intermediate one.
+ *
+ * <p>Ropes are immutable apart from the cached flat string, which is safe to compute more than once, so they can be
+ * shared between threads. The flat string is published before the pieces are cleared, so a reader that finds a piece
+ * cleared always finds the flat string.
+ */
+final class LoxRope {
+    /**
+     * Concatenations shorter than this are copied straight away; ropes only pay off for longer strings.
+     */
+    private static final int MIN_ROPE_LENGTH = 64;
+
+    // cleared once flat is set
+    private volatile Object left;
+    private volatile Object right;
+    private final int length;
+    private volatile String flat;
+
+    private LoxRope(final Object left, final Object right, final int length) {
+        this.left = left;
+        this.right = right;
+        this.length = length;
+    }
+
+    /**
+     * @return {@code true} if the value is a Lox string, flat or not
+     */
+    static boolean isString(final Object value) {
+        return value instanceof String || value instanceof LoxRope;
+    }
+
+    /**
+     * Concatenates two Lox strings.
+     */
+    static Object concat(final Object left, final Object right, final int line) {
+        final long length = (long) length(left) + length(right);
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new RuntimeError(line, "String is too long.");
+        }
+        if (length < MIN_ROPE_LENGTH) {
+            return left.toString() + right;
+        }
+        return new LoxRope(left, right, (int) length);
+    }
+
+    /**
+     * @return the value with any rope replaced by its flat string
+     */
+    static Object flatten(final Object value) {
+        if (value instanceof LoxRope rope) {
+            return rope.toString();
+        }
+        return value;
+    }
+
+    /**
+     * Compares two Lox strings, at least one of them a rope. Strings of different lengths differ without being
+     * flattened.
+     */
+    static boolean equal(final Object left, final Object right) {
+        return length(left) == length(right) && flatten(left).equals(flatten(right));
+    }
+
+    private static int length(final Object string) {
+        if (string instanceof LoxRope rope) {
+            return rope.length;
+        }
+        return ((String) string).length();
+    }
+
+    @Override
+    public String toString() {
+        String result = flat;
+        if (result == null) {
+            result = build();
+            flat = result;
+            left = null;
+            right = null;
+        }
+        return result;
+    }
+
+    // walks the tree with an explicit stack, since loops build ropes far deeper than the call stack allows
+    private String build() {
+        final StringBuilder builder = new StringBuilder(length);
+        final Deque<Object> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            final Object piece = pending.pop();
+            if (piece instanceof LoxRope rope) {
+                final String cached = rope.flat;
+                if (cached != null) {
+                    builder.append(cached);
+                    continue;
+                }
+                final Object left = rope.left;
+                final Object right = rope.right;
+                if (left == null || right == null) {
+                    // flattened by another thread since we looked
+                    builder.append(rope.flat);
+                } else {
+                    pending.push(right);
+                    pending.push(left);
+                }
+            } else {
+                builder.append((String) piece);
+            }
+        }
+        return builder.toString();
+    }
+}
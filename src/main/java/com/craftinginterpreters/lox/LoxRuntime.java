@@ -0,0 +1,134 @@
+package com.craftinginterpreters.lox;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An independent Lox session: it owns its interpreter (and therefore its globals), its output and its error
+ * reporting. Runtimes share nothing but the immutable {@link CompiledProgram}s they execute, so any number of them can
+ * run scripts concurrently, but a single runtime must only be used by one thread at a time.
+ */
+public class LoxRuntime {
+    // run programs from their array-encoded form (see FlatAst) when -Dlox.ast=flat is given, or with an explicit call
+    // stack (see StackInterpreter) when -Dlox.ast=stack is given
+    private static final boolean FLAT_AST = "flat".equals(System.getProperty("lox.ast")) || StackInterpreter.ENABLED;
+
+    private final ErrorReporter reporter;
+    private final Interpreter interpreter;
+    // the memo tables of the programs this runtime compiled, kept only when statistics are wanted
+    private final List<MemoTable> memoTables = new ArrayList<>();
+
+    public LoxRuntime() {
+        this(LoxOutput.standardOutput(), System.err);
+    }
+
+    /**
+     * Constructs a runtime that prints to the given stream, which receives each program's output when it finishes.
+     */
+    public LoxRuntime(final PrintStream out, final PrintStream err) {
+        this(buffered(out), err);
+    }
+
+    public LoxRuntime(final LoxOutput out, final PrintStream err) {
+        this.reporter = new ErrorReporter(err);
+        this.interpreter = new Interpreter(reporter, out);
+    }
+
+    /**
+     * Constructs a runtime whose globals start out as a copy of the snapshot's, typically taken after running a
+     * prelude. The copy is made lazily on the first global write, so creating a runtime does not depend on how many
+     * globals the prelude defined.
+     */
+    public LoxRuntime(final GlobalSnapshot snapshot, final PrintStream out, final PrintStream err) {
+        this(snapshot, buffered(out), err);
+    }
+
+    public LoxRuntime(final GlobalSnapshot snapshot, final LoxOutput out, final PrintStream err) {
+        this.reporter = new ErrorReporter(err);
+        this.interpreter = new Interpreter(reporter, out, snapshot);
+    }
+
+    private static LoxOutput buffered(final PrintStream out) {
+        return new LoxOutput(new OutputStreamWriter(out, Charset.defaultCharset()), LoxOutput.FlushPolicy.BUFFERED);
+    }
+
+    /**
+     * Writes out anything printed since the last program finished, such as output from tasks that are still running.
+     */
+    public void flush() {
+        interpreter.out.flush();
+    }
+
+    /**
+     * Captures the current global variables, for creating runtimes that start from them.
+     */
+    public GlobalSnapshot snapshot() {
+        return interpreter.globals.snapshot();
+    }
+
+    /**
+     * Scans, parses, resolves and executes the given source. Globals defined by earlier calls remain visible.
+     *
+     * @return 0 on success, {@link Lox#DATA_ERROR_CODE} if the source has static errors or
+     * {@link Lox#SOFTWARE_ERROR_CODE} if it failed at runtime
+     */
+    public int run(final String source) {
+        final CompiledProgram program = compile(source);
+        if (program == null) {
+            return Lox.DATA_ERROR_CODE;
+        }
+        return execute(program);
+    }
+
+    /**
+     * Compiles the given source for execution by any runtime; errors are reported to this runtime's error stream.
+     *
+     * @return the program, or null if the source has static errors
+     */
+    public CompiledProgram compile(final String source) {
+        reporter.reset();
+        final CompiledProgram program = CompiledProgram.compile(source, reporter, FLAT_AST);
+        if (program != null && MemoTable.STATISTICS) {
+            memoTables.addAll(program.memoTables);
+        }
+        return program;
+    }
+
+    /**
+     * Prints how often the memoized functions of the programs this runtime compiled were hit, if
+     * {@code -Dlox.memoStats} is given.
+     */
+    public void printMemoStatistics(final PrintStream out) {
+        MemoTable.printStatistics(memoTables, out);
+    }
+
+    /**
+     * Executes a program against this runtime's globals. The program may be executed by other runtimes at the same
+     * time.
+     *
+     * @return 0 on success or {@link Lox#SOFTWARE_ERROR_CODE} if it failed at runtime
+     */
+    public int execute(final CompiledProgram program) {
+        reporter.reset();
+        try {
+            if (program.flat != null && StackInterpreter.ENABLED) {
+                new StackInterpreter(interpreter, program.flat).interpret();
+            } else if (program.flat != null) {
+                new FlatInterpreter(interpreter, program.flat).interpret();
+            } else {
+                interpreter.interpret(program.statements);
+            }
+        } finally {
+            interpreter.out.flush();
+        }
+
+        // report if an error occurred while running
+        if (reporter.hadRuntimeError()) {
+            return Lox.SOFTWARE_ERROR_CODE;
+        }
+        return 0;
+    }
+}
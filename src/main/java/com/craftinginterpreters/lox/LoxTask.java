@@ -0,0 +1,15 @@
+package com.craftinginterpreters.lox;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The value returned by the {@code spawn} native: the pending result of a function running on another thread.
+ */
+final class LoxTask {
+    final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    @Override
+    public String toString() {
+        return "<task>";
+    }
+}
@@ -0,0 +1,37 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * The map natives: {@code map()} creates an empty map; {@code get(map, key)} returns the value for a key or nil,
+ * {@code put(map, key, value)} stores one, {@code remove(map, key)} removes one and returns its value,
+ * {@code has(map, key)} tests for one and {@code keys(map)} returns the keys in insertion order as an array.
+ * {@code size} is shared with arrays.
+ */
+final class MapNatives {
+    private MapNatives() {
+    }
+
+    static void define(final Environment globals) {
+        globals.define("map", new NativeFunction(0, (interpreter, arguments) -> new LoxMap()));
+        globals.define("get", new NativeFunction(2,
+                (interpreter, arguments) -> mapArgument(arguments.get(0)).get(arguments.get(1))));
+        globals.define("put", new NativeFunction(3, (interpreter, arguments) -> {
+            mapArgument(arguments.get(0)).put(arguments.get(1), arguments.get(2));
+            return null;
+        }));
+        globals.define("remove", new NativeFunction(2,
+                (interpreter, arguments) -> mapArgument(arguments.get(0)).remove(arguments.get(1))));
+        globals.define("has", new NativeFunction(2,
+                (interpreter, arguments) -> mapArgument(arguments.get(0)).containsKey(arguments.get(1))));
+        globals.define("keys", new NativeFunction(1,
+                (interpreter, arguments) -> mapArgument(arguments.get(0)).keys()));
+    }
+
+    private static LoxMap mapArgument(final Object argument) {
+        if (argument instanceof LoxMap map) {
+            return map;
+        }
+        throw new NativeError("Expected a map.");
+    }
+}
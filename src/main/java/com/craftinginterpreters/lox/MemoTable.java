@@ -0,0 +1,101 @@
+package com.craftinginterpreters.lox;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the results of one {@link Stmt.Function#pure pure} function, keyed by its arguments, in a least recently
+ * used cache of at most {@code -Dlox.memo} entries. Memoization is off unless that property is set to a positive size.
+ *
+ * <p>Only calls whose arguments are all values (nil, booleans, numbers and strings) are looked up, and only results
+ * that are values are stored, so a cached result can never be an object the program could have changed since.
+ * Numbers are keyed by their double value, since scripts cannot tell an integer from the equal double, so {@code f(1)}
+ * and {@code f(1.0)} share an entry.
+ *
+ * <p>A table belongs to the {@link CompiledProgram} that declares the function and is collected with it. Tables are
+ * shared by all runtimes and threads executing the program, so access is synchronized.
+ */
+final class MemoTable {
+    static final int CAPACITY = Integer.getInteger("lox.memo", 0);
+    static final boolean ENABLED = CAPACITY > 0;
+    /**
+     * Whether runtimes keep the tables of the programs they compile, for {@link #printStatistics}.
+     */
+    static final boolean STATISTICS = Boolean.getBoolean("lox.memoStats");
+    /**
+     * Returned by {@link #get} when there is no entry, since nil is a valid result.
+     */
+    static final Object MISSING = new Object();
+
+    private final String name;
+    private final int line;
+    private final Map<Object, Object> results = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Object, Object> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private long hits;
+    private long misses;
+
+    MemoTable(final String name, final int line) {
+        this.name = name;
+        this.line = line;
+    }
+
+    /**
+     * @return the key for the arguments of a call, or null if the call cannot be memoized
+     */
+    static Object key(final List<Object> arguments) {
+        final Object[] key = new Object[arguments.size()];
+        for (int i = 0; i < key.length; i++) {
+            final Object argument = LoxRope.flatten(arguments.get(i));
+            if (!isValue(argument)) {
+                return null;
+            }
+            key[i] = LoxNumber.isNumber(argument) ? (Object) LoxNumber.toDouble(argument) : argument;
+        }
+        return Arrays.asList(key);
+    }
+
+    private static boolean isValue(final Object value) {
+        return value == null || value instanceof Boolean || value instanceof String || value instanceof LoxRope ||
+                LoxNumber.isNumber(value);
+    }
+
+    /**
+     * @return the cached result for the key, or {@link #MISSING}
+     */
+    synchronized Object get(final Object key) {
+        final Object result = results.getOrDefault(key, MISSING);
+        if (result == MISSING) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    synchronized void put(final Object key, final Object result) {
+        if (isValue(result)) {
+            results.put(key, result);
+        }
+    }
+
+    /**
+     * Prints the hits and misses of each table that has been used.
+     */
+    static void printStatistics(final Iterable<MemoTable> tables, final PrintStream out) {
+        for (final MemoTable table : tables) {
+            synchronized (table) {
+                if (table.hits + table.misses > 0) {
+                    out.println("memo " + table.name + " (line " + table.line + "): " + table.hits + " hits, " +
+                            table.misses + " misses, " + table.results.size() + " entries");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.craftinginterpreters.lox;
+
+import java.io.Serial;
+
+/**
+ * Thrown by natives, which do not know where they were called from; the interpreter turns it into a
+ * {@link RuntimeError} at the line of the call.
+ */
+class NativeError extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 2316601338924745152L;
+
+    NativeError(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,35 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * A function implemented in Java and made available to scripts as a global.
+ */
+final class NativeFunction implements LoxCallable {
+    interface Body {
+        Object call(Interpreter interpreter, List<Object> arguments);
+    }
+
+    private final int arity;
+    private final Body body;
+
+    NativeFunction(final int arity, final Body body) {
+        this.arity = arity;
+        this.body = body;
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    @Override
+    public Object call(final Interpreter interpreter, final List<Object> arguments) {
+        return body.call(interpreter, arguments);
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn>";
+    }
+}
@@ -0,0 +1,58 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * Formats Lox numbers the way {@code print} shows them: {@link Double#toString(double)} without a trailing
+ * {@code ".0"}. Integral values below 10^7, which is where {@code Double.toString} switches to exponent notation, are
+ * written digit by digit without allocating; everything else goes through {@code Double.toString} so that the output
+ * stays exactly the same.
+ */
+final class NumberFormatter {
+    /**
+     * The most characters a formatted number can take ({@code "-2.2250738585072014E-308"}).
+     */
+    static final int MAX_LENGTH = 24;
+
+    private static final double EXPONENT_THRESHOLD = 1e7;
+
+    private NumberFormatter() {
+    }
+
+    static String toString(final double value) {
+        final char[] buffer = new char[MAX_LENGTH];
+        return new String(buffer, 0, format(value, buffer, 0));
+    }
+
+    /**
+     * Writes the number into the buffer, which needs {@link #MAX_LENGTH} free characters from the offset.
+     *
+     * @return the offset after the last character written
+     */
+    static int format(final double value, final char[] buffer, final int offset) {
+        if (value > -EXPONENT_THRESHOLD && value < EXPONENT_THRESHOLD && value == (int) value) {
+            return formatIntegral(value, buffer, offset);
+        }
+
+        final String text = Double.toString(value);
+        final int length = text.endsWith(".0") ? text.length() - 2 : text.length();
+        text.getChars(0, length, buffer, offset);
+        return offset + length;
+    }
+
+    private static int formatIntegral(final double value, final char[] buffer, int offset) {
+        // the sign test also catches -0.0, which Double.toString prints as "-0.0"
+        if (Double.doubleToRawLongBits(value) < 0) {
+            buffer[offset++] = '-';
+        }
+        int remaining = Math.abs((int) value);
+        int digits = 1;
+        for (int bound = 10; digits < 7 && remaining >= bound; bound *= 10) {
+            digits++;
+        }
+        final int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,166 @@
+package com.craftinginterpreters.lox;
+
+import java.io.Serial;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The data-parallel natives, run on the common {@link ForkJoinPool}:
+ * <ul>
+ *     <li>{@code parallelMap(fn, array)} returns a new array of {@code fn(element)} for each element</li>
+ *     <li>{@code parallelReduce(fn, init, array)} combines the elements with {@code fn(accumulator, element)};
+ *     {@code fn} must be associative and {@code init} its identity, because chunks are reduced separately (each
+ *     starting from {@code init}) and their results are then combined with {@code fn}</li>
+ * </ul>
+ * Arrays smaller than {@link #SEQUENTIAL_THRESHOLD} are processed on the calling thread. Larger ones are split in
+ * halves for as long as the pool has idle workers to take the work, so the number of chunks adapts to the load. Each
+ * chunk runs on its own {@link Interpreter#fork() fork} of the calling interpreter. {@code fn} should not have side
+ * effects: chunks run concurrently and in no particular order.
+ */
+final class Parallel {
+    static final int SEQUENTIAL_THRESHOLD = 64;
+    // stop splitting once this many forked chunks are waiting for a worker
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    private Parallel() {
+    }
+
+    static void define(final Environment globals) {
+        globals.define("parallelMap", new NativeFunction(2, Parallel::parallelMap));
+        globals.define("parallelReduce", new NativeFunction(3, Parallel::parallelReduce));
+    }
+
+    private static Object parallelMap(final Interpreter interpreter, final List<Object> arguments) {
+        final LoxCallable function = functionArgument(arguments.get(0), 1);
+        final LoxArray array = ArrayNatives.arrayArgument(arguments.get(1));
+        // workers fill a plain array; building the LoxArray afterwards lets it pick its storage safely
+        final Object[] result = new Object[array.size()];
+        final MapTask task = new MapTask(interpreter, function, array, result, 0, array.size());
+        if (array.size() < SEQUENTIAL_THRESHOLD) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        return LoxArray.of(result);
+    }
+
+    private static Object parallelReduce(final Interpreter interpreter, final List<Object> arguments) {
+        final LoxCallable function = functionArgument(arguments.get(0), 2);
+        final LoxArray array = ArrayNatives.arrayArgument(arguments.get(2));
+        final ReduceTask task = new ReduceTask(interpreter, function, arguments.get(1), array, 0, array.size());
+        if (array.size() < SEQUENTIAL_THRESHOLD) {
+            return task.compute();
+        }
+        return ForkJoinPool.commonPool().invoke(task);
+    }
+
+    private static LoxCallable functionArgument(final Object argument, final int arity) {
+        if (argument instanceof LoxCallable function && function.arity() == arity) {
+            return function;
+        }
+        throw new NativeError("Expected a function that takes " + arity + " argument(s).");
+    }
+
+    private static boolean shouldSplit(final int from, final int to) {
+        return to - from >= SEQUENTIAL_THRESHOLD && RecursiveTask.getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS;
+    }
+
+    private static final class MapTask extends RecursiveTask<Void> {
+        @Serial
+        private static final long serialVersionUID = 6052189417735623290L;
+
+        private final Interpreter interpreter;
+        private final LoxCallable function;
+        private final LoxArray source;
+        private final Object[] target;
+        private final int from;
+        private final int to;
+
+        MapTask(final Interpreter interpreter, final LoxCallable function, final LoxArray source,
+                final Object[] target, final int from, final int to) {
+            this.interpreter = interpreter;
+            this.function = function;
+            this.source = source;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Void compute() {
+            // hand off upper halves while there are idle workers, then process what is left here
+            int end = to;
+            final Deque<MapTask> forked = new ArrayDeque<>();
+            while (shouldSplit(from, end)) {
+                final int middle = (from + end) >>> 1;
+                final MapTask upper = new MapTask(interpreter, function, source, target, middle, end);
+                upper.fork();
+                forked.push(upper);
+                end = middle;
+            }
+
+            final Interpreter fork = interpreter.fork();
+            for (int i = from; i < end; i++) {
+                target[i] = function.call(fork, Collections.singletonList(source.get(i)));
+            }
+
+            for (final MapTask upper : forked) {
+                upper.join();
+            }
+            return null;
+        }
+    }
+
+    private static final class ReduceTask extends RecursiveTask<Object> {
+        @Serial
+        private static final long serialVersionUID = -3318254107952716466L;
+
+        private final Interpreter interpreter;
+        private final LoxCallable function;
+        private final Object identity;
+        private final LoxArray source;
+        private final int from;
+        private final int to;
+
+        ReduceTask(final Interpreter interpreter, final LoxCallable function, final Object identity,
+                   final LoxArray source, final int from, final int to) {
+            this.interpreter = interpreter;
+            this.function = function;
+            this.identity = identity;
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Object compute() {
+            // hand off upper halves while there are idle workers, then process what is left here
+            int end = to;
+            final Deque<ReduceTask> forked = new ArrayDeque<>();
+            while (shouldSplit(from, end)) {
+                final int middle = (from + end) >>> 1;
+                final ReduceTask upper = new ReduceTask(interpreter, function, identity, source, middle, end);
+                upper.fork();
+                forked.push(upper);
+                end = middle;
+            }
+
+            final Interpreter fork = interpreter.fork();
+            Object accumulator = identity;
+            for (int i = from; i < end; i++) {
+                accumulator = function.call(fork, Arrays.asList(accumulator, source.get(i)));
+            }
+
+            // the most recently forked task holds the range directly after ours, so combine in that order
+            for (final ReduceTask upper : forked) {
+                accumulator = function.call(fork, Arrays.asList(accumulator, upper.join()));
+            }
+            return accumulator;
+        }
+    }
+}
@@ -23,10 +23,12 @@ public class Parser {
     }
 
     private final List<Token> tokens;
+    private final ErrorReporter reporter;
     private int current = 0;
 
-    Parser(final List<Token> tokens) {
+    Parser(final List<Token> tokens, final ErrorReporter reporter) {
         this.tokens = tokens;
+        this.reporter = reporter;
     }
 
     List<Stmt> parse() {
@@ -58,6 +60,13 @@ public class Parser {
 
     private Stmt classDeclaration() {
         final Token name = consume(IDENTIFIER, "Expect class name");
+
+        Expr.Variable superclass = null;
+        if (match(LESS)) {
+            consume(IDENTIFIER, "Expect superclass name");
+            superclass = new Expr.Variable(previous());
+        }
+
         consume(LEFT_BRACE, "Expect '{' before class body");
 
         final List<Stmt.Function> methods = new ArrayList<>();
@@ -67,7 +76,7 @@ public class Parser {
 
         consume(RIGHT_BRACE, "Expect '}' after class body.");
 
-        return new Stmt.Class(name, methods);
+        return new Stmt.Class(name, superclass, methods);
     }
 
     private Stmt.Function function(final FunctionKind kind) {
@@ -241,6 +250,8 @@ public class Parser {
                 return new Expr.Assign(var.name, value);
             } else if (expr instanceof Expr.Get get) {
                 return new Expr.Set(get.object, get.name, value);
+            } else if (expr instanceof Expr.Index index) {
+                return new Expr.IndexSet(index.object, index.bracket, index.index, value);
             }
 
             error(equals, "Invalid assignment target");
@@ -339,6 +350,10 @@ public class Parser {
             } else if (match(DOT)) {
                 final Token name = consume(IDENTIFIER, "Expect property name after '.'");
                 expr = new Expr.Get(expr, name);
+            } else if (match(LEFT_BRACKET)) {
+                final Expr index = expression();
+                final Token bracket = consume(RIGHT_BRACKET, "Expect ']' after index.");
+                expr = new Expr.Index(expr, bracket, index);
             } else {
                 break;
             }
@@ -385,6 +400,25 @@ public class Parser {
             return new Expr.Grouping(expr);
         }
 
+        if (match(LEFT_BRACKET)) {
+            final Token bracket = previous();
+            final List<Expr> elements = new ArrayList<>();
+            if (!check(RIGHT_BRACKET)) {
+                do {
+                    elements.add(expression());
+                } while (match(COMMA));
+            }
+            consume(RIGHT_BRACKET, "Expect ']' after array elements.");
+            return new Expr.Array(bracket, elements);
+        }
+
+        if (match(SUPER)) {
+            final Token keyword = previous();
+            consume(DOT, "Expect '.' after 'super'");
+            final Token method = consume(IDENTIFIER, "Expect superclass method name");
+            return new Expr.Super(keyword, method);
+        }
+
         if (match(THIS)) {
             return new Expr.This(previous());
         }
@@ -404,7 +438,7 @@ public class Parser {
     }
 
     private ParseError error(final Token token, final String message) {
-        Lox.error(token, message);
+        reporter.error(token, message);
         return new ParseError();
     }
 
@@ -0,0 +1,369 @@
+package com.craftinginterpreters.lox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Marks the functions of a resolved program that are {@link Stmt.Function#pure pure}: their result depends only on
+ * their arguments and calling them has no effect other than returning it. A function is pure if it
+ * <ul>
+ *     <li>reads and assigns only its own parameters and locals (so no globals, no captured variables, no {@code this}
+ *     and no {@code super}),</li>
+ *     <li>does not print, set fields or store into arrays, and declares no classes,</li>
+ *     <li>and calls only functions, named directly, that are pure themselves.</li>
+ * </ul>
+ * A called name counts only if it is never assigned anywhere in the program, so that it always refers to the same
+ * declaration; natives and functions from other programs (earlier REPL lines, say) are not known, so calls to them
+ * are impure. Initializers are never pure, since they return their instance. Functions are assumed pure until one of
+ * their calls is found to be impure, so (mutually) recursive functions can be pure.
+ *
+ * <p>Runs after the {@link Resolver}, whose scope distances it relies on, and mirrors its scopes. When memoization is
+ * {@link MemoTable#ENABLED enabled}, each pure function gets its {@link MemoTable}.
+ */
+final class PurityAnalyzer implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    /**
+     * What the walk learned about one function.
+     */
+    private static final class FunctionInfo {
+        final Stmt.Function declaration;
+        // index of the function's own scope in scopes
+        final int scope;
+        boolean impure;
+        // local functions called by name
+        final List<Stmt.Function> localCallees = new ArrayList<>();
+        // names of all functions called by name, local or global
+        final Set<String> calleeNames = new HashSet<>();
+        final Set<String> globalCallees = new HashSet<>();
+
+        FunctionInfo(final Stmt.Function declaration, final int scope) {
+            this.declaration = declaration;
+            this.scope = scope;
+        }
+    }
+
+    // name -> function declared under it in that scope, or null for anything else
+    private final List<Map<String, Stmt.Function>> scopes = new ArrayList<>();
+    private final Map<String, Stmt.Function> globalFunctions = new HashMap<>();
+    // globals that are not (only) a single function declaration
+    private final Set<String> otherGlobals = new HashSet<>();
+    private final Set<String> assignedNames = new HashSet<>();
+    // in declaration order, so that the memo tables, and the statistics printed from them, come out in that order
+    private final Map<Stmt.Function, FunctionInfo> functions = new LinkedHashMap<>();
+    private FunctionInfo current;
+
+    private PurityAnalyzer() {
+    }
+
+    /**
+     * @return the memo tables given to the program's pure functions, empty unless memoization is enabled
+     */
+    static List<MemoTable> analyze(final List<Stmt> statements) {
+        final PurityAnalyzer analyzer = new PurityAnalyzer();
+        analyzer.statements(statements);
+        return analyzer.propagate();
+    }
+
+    private List<MemoTable> propagate() {
+        for (final FunctionInfo info : functions.values()) {
+            for (final String name : info.calleeNames) {
+                if (assignedNames.contains(name)) {
+                    info.impure = true;
+                }
+            }
+            for (final String name : info.globalCallees) {
+                if (!globalFunctions.containsKey(name) || otherGlobals.contains(name)) {
+                    info.impure = true;
+                }
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (final FunctionInfo info : functions.values()) {
+                if (!info.impure && callsImpure(info)) {
+                    info.impure = true;
+                    changed = true;
+                }
+            }
+        }
+
+        final List<MemoTable> tables = new ArrayList<>();
+        for (final FunctionInfo info : functions.values()) {
+            info.declaration.pure = !info.impure;
+            if (info.declaration.pure && MemoTable.ENABLED) {
+                info.declaration.memo = new MemoTable(info.declaration.name.lexeme(), info.declaration.name.line());
+                tables.add(info.declaration.memo);
+            }
+        }
+        return tables;
+    }
+
+    private boolean callsImpure(final FunctionInfo info) {
+        for (final Stmt.Function callee : info.localCallees) {
+            if (functions.get(callee).impure) {
+                return true;
+            }
+        }
+        for (final String name : info.globalCallees) {
+            if (functions.get(globalFunctions.get(name)).impure) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void statements(final List<Stmt> statements) {
+        for (final Stmt statement : statements) {
+            statement.accept(this);
+        }
+    }
+
+    private void impure() {
+        if (current != null) {
+            current.impure = true;
+        }
+    }
+
+    private void declare(final String name, final Stmt.Function function) {
+        if (scopes.isEmpty()) {
+            if (function == null || globalFunctions.containsKey(name)) {
+                otherGlobals.add(name);
+            }
+            if (function != null) {
+                globalFunctions.put(name, function);
+            }
+        } else {
+            scopes.get(scopes.size() - 1).put(name, function);
+        }
+    }
+
+    private boolean isLocal(final int distance) {
+        return distance >= 0 && scopes.size() - 1 - distance >= current.scope;
+    }
+
+    private void function(final Stmt.Function function, final boolean initializer) {
+        final FunctionInfo enclosing = current;
+        scopes.add(new HashMap<>());
+        current = new FunctionInfo(function, scopes.size() - 1);
+        current.impure = initializer;
+        functions.put(function, current);
+        for (final Token param : function.params) {
+            declare(param.lexeme(), null);
+        }
+        statements(function.body);
+        scopes.remove(scopes.size() - 1);
+        current = enclosing;
+    }
+
+    @Override
+    public Void visitBlockStmt(final Stmt.Block stmt) {
+        scopes.add(new HashMap<>());
+        statements(stmt.statements);
+        scopes.remove(scopes.size() - 1);
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(final Stmt.Class stmt) {
+        impure();
+        declare(stmt.name.lexeme(), null);
+        if (stmt.superclass != null) {
+            stmt.superclass.accept(this);
+            scopes.add(new HashMap<>());
+        }
+        scopes.add(new HashMap<>());
+        for (final Stmt.Function method : stmt.methods) {
+            function(method, method.name.lexeme().equals("init"));
+        }
+        scopes.remove(scopes.size() - 1);
+        if (stmt.superclass != null) {
+            scopes.remove(scopes.size() - 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(final Stmt.Expression stmt) {
+        stmt.expression.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(final Stmt.Function stmt) {
+        declare(stmt.name.lexeme(), stmt);
+        function(stmt, false);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(final Stmt.If stmt) {
+        stmt.condition.accept(this);
+        stmt.thenBranch.accept(this);
+        if (stmt.elseBranch != null) {
+            stmt.elseBranch.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(final Stmt.Print stmt) {
+        impure();
+        stmt.expression.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(final Stmt.Return stmt) {
+        if (stmt.value != null) {
+            stmt.value.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(final Stmt.Var stmt) {
+        if (stmt.initializer != null) {
+            stmt.initializer.accept(this);
+        }
+        declare(stmt.name.lexeme(), null);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(final Stmt.While stmt) {
+        stmt.condition.accept(this);
+        stmt.body.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayExpr(final Expr.Array expr) {
+        for (final Expr element : expr.elements) {
+            element.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(final Expr.Assign expr) {
+        assignedNames.add(expr.name.lexeme());
+        if (current != null && !isLocal(expr.distance)) {
+            current.impure = true;
+        }
+        expr.value.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(final Expr.Binary expr) {
+        expr.left.accept(this);
+        expr.right.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(final Expr.Call expr) {
+        if (current != null && expr.callee instanceof Expr.Variable callee) {
+            // a call by name is checked against the named function rather than as a read of the variable
+            final String name = callee.name.lexeme();
+            current.calleeNames.add(name);
+            if (callee.distance < 0) {
+                current.globalCallees.add(name);
+            } else {
+                final Stmt.Function function = scopes.get(scopes.size() - 1 - callee.distance).get(name);
+                if (function == null) {
+                    current.impure = true;
+                } else {
+                    current.localCallees.add(function);
+                }
+            }
+        } else {
+            impure();
+            expr.callee.accept(this);
+        }
+        for (final Expr argument : expr.arguments) {
+            argument.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(final Expr.Get expr) {
+        expr.object.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(final Expr.Grouping expr) {
+        expr.expression.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexExpr(final Expr.Index expr) {
+        expr.object.accept(this);
+        expr.index.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(final Expr.IndexSet expr) {
+        impure();
+        expr.object.accept(this);
+        expr.index.accept(this);
+        expr.value.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(final Expr.Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(final Expr.Logical expr) {
+        expr.left.accept(this);
+        expr.right.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(final Expr.Set expr) {
+        impure();
+        expr.object.accept(this);
+        expr.value.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(final Expr.Super expr) {
+        impure();
+        return null;
+    }
+
+    @Override
+    public Void visitThisExpr(final Expr.This expr) {
+        impure();
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(final Expr.Unary expr) {
+        expr.right.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(final Expr.Variable expr) {
+        if (current != null && !isLocal(expr.distance)) {
+            current.impure = true;
+        }
+        return null;
+    }
+}
@@ -1,27 +1,31 @@
 package com.craftinginterpreters.lox;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
-    private final Interpreter interpreter;
+    private final ErrorReporter reporter;
     // name -> is defined; when declared but not yet defined, use is not allowed: `var a = a;` etc. is not allowed
     private final Stack<Map<String, Boolean>> scopes = new Stack<>();
     private FunctionType currentFunction = FunctionType.NONE;
     private ClassType currentClass = ClassType.NONE;
+    // the fields the initializer being resolved assigns through `this` in its own body, or null outside of one
+    private Set<String> initializerFields;
 
     private enum FunctionType {
         NONE, FUNCTION, INITIALIZER, METHOD
     }
 
     private enum ClassType {
-        NONE, CLASS
+        NONE, CLASS, SUBCLASS
     }
 
-    public Resolver(final Interpreter interpreter) {
-        this.interpreter = interpreter;
+    public Resolver(final ErrorReporter reporter) {
+        this.reporter = reporter;
     }
 
     @Override
@@ -35,43 +39,57 @@ public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Void visitSetExpr(final Expr.Set expr) {
         resolve(expr.value);
         resolve(expr.object);
+        if (initializerFields != null && expr.object instanceof Expr.This) {
+            initializerFields.add(expr.name.lexeme());
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitSuperExpr(final Expr.Super expr) {
+        if (currentClass == ClassType.NONE) {
+            reporter.error(expr.keyword, "Can't use 'super' outside of a class");
+        } else if (currentClass != ClassType.SUBCLASS) {
+            reporter.error(expr.keyword, "Can't use 'super' in a class with no superclass");
+        }
+        expr.distance = resolveLocal(expr.keyword);
         return null;
     }
 
     @Override
     public Void visitThisExpr(final Expr.This expr) {
         if (currentClass == ClassType.NONE) {
-            Lox.error(expr.keyword, "Can't use 'this' outside of a class");
+            reporter.error(expr.keyword, "Can't use 'this' outside of a class");
             return null;
         }
-        resolveLocal(expr, expr.keyword);
+        expr.distance = resolveLocal(expr.keyword);
         return null;
     }
 
     @Override
     public Object visitVariableExpr(final Expr.Variable expr) {
         if (!scopes.isEmpty() && scopes.peek().get(expr.name.lexeme()) == Boolean.FALSE) {
-            Lox.error(expr.name, "Can't read local variable in its own initializer");
+            reporter.error(expr.name, "Can't read local variable in its own initializer");
         }
 
-        resolveLocal(expr, expr.name);
+        expr.distance = resolveLocal(expr.name);
         return null;
     }
 
     /**
-     * Leaf processor for this visitor; determines the scope index that the given token in the expression refers to,
-     * and shares the information with the interpreter.
+     * Leaf processor for this visitor; determines the scope index that the given token in the expression refers to.
+     * The result is stored in the expression node itself, so a resolved tree carries everything needed to run it.
      *
-     * @param expr
      * @param name
+     * @return the number of scopes between the use and the declaration, or -1 for a global
      */
-    private void resolveLocal(final Expr expr, final Token name) {
+    private int resolveLocal(final Token name) {
         for (int i = scopes.size() - 1; i >= 0; i--) {
             if (scopes.get(i).containsKey(name.lexeme())) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
-                return;
+                return scopes.size() - 1 - i;
             }
         }
+        return -1;
     }
 
     @Override
@@ -85,6 +103,29 @@ public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Object visitArrayExpr(final Expr.Array expr) {
+        for (final Expr element : expr.elements) {
+            resolve(element);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitIndexExpr(final Expr.Index expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        return null;
+    }
+
+    @Override
+    public Object visitIndexSetExpr(final Expr.IndexSet expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        resolve(expr.value);
+        return null;
+    }
+
     @Override
     public Object visitGetExpr(final Expr.Get expr) {
         resolve(expr.object);
@@ -94,7 +135,7 @@ public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Object visitAssignExpr(final Expr.Assign expr) {
         resolve(expr.value);
-        resolveLocal(expr, expr.name);
+        expr.distance = resolveLocal(expr.name);
         return null;
     }
 
@@ -138,7 +179,7 @@ public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
         final Map<String, Boolean> scope = scopes.peek();
         if (scope.containsKey(name.lexeme())) {
-            Lox.error(name, "Already a variable with this name in this scope");
+            reporter.error(name, "Already a variable with this name in this scope");
         }
         scope.put(name.lexeme(), false);
     }
@@ -167,6 +208,11 @@ public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     private void resolveFunction(final Stmt.Function function, final FunctionType type) {
         final FunctionType enclosingFunction = currentFunction;
         currentFunction = type;
+        // a function declared inside an initializer may run later, or never, so its assignments are not counted
+        final Set<String> enclosingFields = initializerFields;
+        if (type == FunctionType.FUNCTION) {
+            initializerFields = null;
+        }
         beginScope();
 
         for (final Token param : function.params) {
@@ -176,6 +222,7 @@ public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         resolve(function.body);
 
         endScope();
+        initializerFields = enclosingFields;
         currentFunction = enclosingFunction;
     }
 
@@ -195,16 +242,39 @@ public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         declare(stmt.name);
         define(stmt.name);
 
+        if (stmt.superclass != null) {
+            if (stmt.name.lexeme().equals(stmt.superclass.name.lexeme())) {
+                reporter.error(stmt.superclass.name, "A class can't inherit from itself");
+            }
+            currentClass = ClassType.SUBCLASS;
+            resolve(stmt.superclass);
+
+            beginScope();
+            scopes.peek().put("super", true);
+        }
+
         beginScope();
         scopes.peek().put("this", true);
 
+        final Set<String> enclosingFields = initializerFields;
         for (final Stmt.Function method : stmt.methods) {
-            final FunctionType declaration =
-                    method.name.lexeme().equals("init") ? FunctionType.INITIALIZER : FunctionType.METHOD;
-            resolveFunction(method, declaration);
+            if (method.name.lexeme().equals("init")) {
+                initializerFields = new HashSet<>();
+                resolveFunction(method, FunctionType.INITIALIZER);
+                // lets the class size its instances' field storage up front
+                stmt.fieldCount = initializerFields.size();
+            } else {
+                initializerFields = null;
+                resolveFunction(method, FunctionType.METHOD);
+            }
         }
+        initializerFields = enclosingFields;
         endScope();
 
+        if (stmt.superclass != null) {
+            endScope();
+        }
+
         currentClass = enclosingClass;
         return null;
     }
@@ -250,11 +320,11 @@ public class Resolver implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Void visitReturnStmt(final Stmt.Return stmt) {
         if (currentFunction == FunctionType.NONE) {
-            Lox.error(stmt.keyword, "Can't return from top-level code");
+            reporter.error(stmt.keyword, "Can't return from top-level code");
         }
         if (stmt.value != null) {
             if (currentFunction == FunctionType.INITIALIZER) {
-                Lox.error(stmt.keyword, "Can't return a value from an initializer");
+                reporter.error(stmt.keyword, "Can't return a value from an initializer");
             }
             resolve(stmt.value);
         }
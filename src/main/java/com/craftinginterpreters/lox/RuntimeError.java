@@ -5,10 +5,14 @@ import java.io.Serial;
 class RuntimeError extends RuntimeException {
     @Serial
     private static final long serialVersionUID = -874367121191485468L;
-    final Token token;
+    final int line;
 
     RuntimeError(final Token token, final String message) {
+        this(token.line(), message);
+    }
+
+    RuntimeError(final int line, final String message) {
         super(message);
-        this.token = token;
+        this.line = line;
     }
 }
\ No newline at end of file
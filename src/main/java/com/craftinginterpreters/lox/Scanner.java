@@ -3,41 +3,49 @@ package com.craftinginterpreters.lox;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import static com.craftinginterpreters.lox.TokenType.*;
 
 public class Scanner {
-    private static final Map<String, TokenType> keywords;
+    // powers of ten that are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // largest integer below which every long converts to a double exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // the lexeme of each token type whose text never varies (punctuation and keywords), by ordinal
+    private static final String[] FIXED_LEXEMES = new String[TokenType.values().length];
 
     static {
-        keywords = new HashMap<>();
-        keywords.put("and", AND);
-        keywords.put("class", CLASS);
-        keywords.put("else", ELSE);
-        keywords.put("false", FALSE);
-        keywords.put("for", FOR);
-        keywords.put("fun", FUN);
-        keywords.put("if", IF);
-        keywords.put("nil", NIL);
-        keywords.put("or", OR);
-        keywords.put("print", PRINT);
-        keywords.put("return", RETURN);
-        keywords.put("super", SUPER);
-        keywords.put("this", THIS);
-        keywords.put("true", TRUE);
-        keywords.put("var", VAR);
-        keywords.put("while", WHILE);
+        final String[] punctuation = {"(", ")", "{", "}", "[", "]", ",", ".", "-", "+", ";", "/", "*",
+                "!", "!=", "=", "==", ">", ">=", "<", "<="};
+        final TokenType[] punctuationTypes = {LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, LEFT_BRACKET,
+                RIGHT_BRACKET, COMMA, DOT, MINUS, PLUS, SEMICOLON, SLASH, STAR, BANG, BANG_EQUAL, EQUAL, EQUAL_EQUAL,
+                GREATER, GREATER_EQUAL, LESS, LESS_EQUAL};
+        for (int i = 0; i < punctuation.length; i++) {
+            FIXED_LEXEMES[punctuationTypes[i].ordinal()] = punctuation[i];
+        }
+        for (final TokenType keyword : new TokenType[]{AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NIL, OR, PRINT, RETURN,
+                SUPER, THIS, TRUE, VAR, WHILE}) {
+            FIXED_LEXEMES[keyword.ordinal()] = keyword.name().toLowerCase(Locale.ROOT);
+        }
     }
 
     private final String source;
+    private final ErrorReporter reporter;
     private final List<Token> tokens = new ArrayList<>();
+    // one copy of each identifier and string literal for the whole scan; see addToken()
+    private final Map<String, String> names = new HashMap<>();
     private int start;
     private int current;
     private int line = 1;
 
-    public Scanner(final String source) {
+    public Scanner(final String source, final ErrorReporter reporter) {
         this.source = source;
+        this.reporter = reporter;
     }
 
     public List<Token> scanTokens() {
@@ -70,6 +78,12 @@ public class Scanner {
             case '}':
                 addToken(RIGHT_BRACE);
                 break;
+            case '[':
+                addToken(LEFT_BRACKET);
+                break;
+            case ']':
+                addToken(RIGHT_BRACKET);
+                break;
             case ',':
                 addToken(COMMA);
                 break;
@@ -106,9 +120,7 @@ public class Scanner {
             case '/':
                 if (match('/')) {
                     // a comment goes until the end of the line
-                    while (peek() != '\n' && !isAtEnd()) {
-                        advance();
-                    }
+                    skipComment();
                 } else {
                     addToken(SLASH);
                 }
@@ -118,6 +130,7 @@ public class Scanner {
             case ' ':
             case '\r':
             case '\t':
+                skipBlanks();
                 break;
             case '\n':
                 line++;
@@ -133,30 +146,57 @@ public class Scanner {
                 } else if (isAlpha(c)) {
                     identifier();
                 } else {
-                    Lox.error(line, "Unexpected character.");
+                    reporter.error(line, "Unexpected character.");
                 }
                 break;
         }
     }
 
-    private void string() {
-        while (peek() != '"' && !isAtEnd()) {
-            if (peek() == '\n') {
-                line++;
+    /**
+     * Jumps to the next newline (or the end of the source) with {@link String#indexOf(int, int)}, which HotSpot
+     * intrinsifies into a vectorized search, instead of advancing one char at a time.
+     */
+    private void skipComment() {
+        final int newline = source.indexOf('\n', current);
+        current = newline < 0 ? source.length() : newline;
+    }
+
+    /**
+     * Consumes the rest of a run of spaces, tabs and carriage returns; newlines are left for
+     * {@link #scanToken()} so that it can count lines.
+     */
+    private void skipBlanks() {
+        final int length = source.length();
+        while (current < length) {
+            final char c = source.charAt(current);
+            if (c != ' ' && c != '\r' && c != '\t') {
+                break;
             }
-            advance();
+            current++;
         }
+    }
+
+    private void string() {
+        final int close = source.indexOf('"', current);
+        final int end = close < 0 ? source.length() : close;
+        // count the newlines in the string body
+        for (int newline = source.indexOf('\n', current); newline >= 0 && newline < end;
+             newline = source.indexOf('\n', newline + 1)) {
+            line++;
+        }
+        current = end;
 
         if (isAtEnd()) {
-            Lox.error(line, "Unterminated string.");
+            reporter.error(line, "Unterminated string.");
             return;
         }
 
         // The closing "
         advance();
 
-        // Trim the surrounding quotes
-        final String value = source.substring(start + 1, current - 1);
+        // Trim the surrounding quotes; pooled like identifiers, so equal literals in a program are the same object and
+        // compare by identity
+        final String value = pooled(source.substring(start + 1, current - 1));
         addToken(STRING, value);
     }
 
@@ -164,9 +204,21 @@ public class Scanner {
         return c >= '0' && c <= '9';
     }
 
+    /**
+     * Accumulates the digits of the literal into a long as they are consumed. When both the digits and the power of
+     * ten for the fraction are exact doubles, a single division gives the correctly rounded result; anything larger
+     * falls back to {@link Double#parseDouble(String)}.
+     */
     private void number() {
+        // the first digit was already consumed by scanToken()
+        long mantissa = source.charAt(start) - '0';
+        boolean exact = true;
+        int fractionDigits = 0;
         while (isDigit(peek())) {
-            advance();
+            if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                exact = false;
+            }
+            mantissa = mantissa * 10 + (advance() - '0');
         }
 
         // Look for decimal
@@ -175,10 +227,26 @@ public class Scanner {
             advance();
 
             while (isDigit(peek())) {
-                advance();
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    exact = false;
+                }
+                mantissa = mantissa * 10 + (advance() - '0');
+                fractionDigits++;
             }
         }
-        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+
+        if (exact && fractionDigits == 0 && mantissa <= Integer.MAX_VALUE) {
+            // see LoxNumber
+            addToken(NUMBER, (int) mantissa);
+            return;
+        }
+        final double value;
+        if (exact && fractionDigits < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[fractionDigits];
+        } else {
+            value = Double.parseDouble(source.substring(start, current));
+        }
+        addToken(NUMBER, value);
     }
 
     private boolean isAlpha(final char c) {
@@ -194,9 +262,50 @@ public class Scanner {
             advance();
         }
 
-        final String text = source.substring(start, current);
-        final TokenType type = keywords.getOrDefault(text, IDENTIFIER);
-        addToken(type);
+        addToken(keywordType());
+    }
+
+    /**
+     * Recognizes the reserved words by switching on the length and first char of the current lexeme, then
+     * comparing the rest directly against the source; no substring is created for the check.
+     */
+    private TokenType keywordType() {
+        return switch (current - start) {
+            case 2 -> switch (source.charAt(start)) {
+                case 'i' -> checkKeyword("if", IF);
+                case 'o' -> checkKeyword("or", OR);
+                default -> IDENTIFIER;
+            };
+            case 3 -> switch (source.charAt(start)) {
+                case 'a' -> checkKeyword("and", AND);
+                case 'f' -> source.charAt(start + 1) == 'o' ? checkKeyword("for", FOR) : checkKeyword("fun", FUN);
+                case 'n' -> checkKeyword("nil", NIL);
+                case 'v' -> checkKeyword("var", VAR);
+                default -> IDENTIFIER;
+            };
+            case 4 -> switch (source.charAt(start)) {
+                case 'e' -> checkKeyword("else", ELSE);
+                case 't' -> source.charAt(start + 1) == 'h' ? checkKeyword("this", THIS) : checkKeyword("true", TRUE);
+                default -> IDENTIFIER;
+            };
+            case 5 -> switch (source.charAt(start)) {
+                case 'c' -> checkKeyword("class", CLASS);
+                case 'f' -> checkKeyword("false", FALSE);
+                case 'p' -> checkKeyword("print", PRINT);
+                case 's' -> checkKeyword("super", SUPER);
+                case 'w' -> checkKeyword("while", WHILE);
+                default -> IDENTIFIER;
+            };
+            case 6 -> checkKeyword("return", RETURN);
+            default -> IDENTIFIER;
+        };
+    }
+
+    private TokenType checkKeyword(final String keyword, final TokenType type) {
+        if (source.regionMatches(start, keyword, 0, keyword.length())) {
+            return type;
+        }
+        return IDENTIFIER;
     }
 
     private boolean match(final char expected) {
@@ -230,8 +339,19 @@ public class Scanner {
         return source.charAt(current + 1);
     }
 
+    /**
+     * Adds a token without a literal value. The parser keeps these tokens in AST nodes for as long as the program is
+     * loaded, so their lexemes are shared: punctuation and keywords use constant strings without taking a substring,
+     * and each distinct identifier is stored once per scan however often it occurs.
+     */
     private void addToken(final TokenType type) {
-        addToken(type, null);
+        final String fixed = FIXED_LEXEMES[type.ordinal()];
+        tokens.add(new Token(type, fixed != null ? fixed : pooled(source.substring(start, current)), null, line));
+    }
+
+    private String pooled(final String text) {
+        final String existing = names.putIfAbsent(text, text);
+        return existing != null ? existing : text;
     }
 
     private void addToken(final TokenType type, final Object literal) {
@@ -0,0 +1,528 @@
+package com.craftinginterpreters.lox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.craftinginterpreters.lox.FlatAst.NONE;
+import static com.craftinginterpreters.lox.FlatAst.STMT;
+
+/**
+ * Evaluates a {@link FlatAst} without recursing in Java. Pending work is kept on an explicit stack of
+ * {@code (node, step)} items, intermediate values on a value stack and Lox calls on an activation stack, all of them
+ * growable arrays on the heap; a node that needs its operands evaluated first pushes itself back with the next step
+ * and then the operands. Recursion in Lox is therefore limited by {@link #MAX_DEPTH} (the {@code lox.maxDepth} system
+ * property) rather than by the Java thread's stack size, and exceeding it is a runtime error.
+ *
+ * <p>Used when {@code -Dlox.ast=stack} is given. Semantics match {@link FlatInterpreter}, which it shares functions
+ * and classes with; calls that come back into Lox from natives (such as {@code parallelMap}) start a new machine.
+ */
+final class StackInterpreter {
+    static final boolean ENABLED = "stack".equals(System.getProperty("lox.ast"));
+    static final int MAX_DEPTH = Integer.getInteger("lox.maxDepth", 100_000);
+
+    // pseudo-nodes for work items that are not AST nodes
+    private static final int RESTORE_ENVIRONMENT = -2;
+    private static final int END_OF_CALL = -3;
+
+    private final Interpreter interpreter;
+    // the evaluator (and so the AST) of the code being run; changes when calling a function from another program
+    private FlatInterpreter current;
+    private FlatAst ast;
+    private Environment environment;
+
+    private int[] workNodes = new int[64];
+    private int[] workSteps = new int[64];
+    private int workSize;
+
+    private Object[] values = new Object[64];
+    private int valueSize;
+
+    // environments to go back to when a block ends
+    private Environment[] environments = new Environment[16];
+    private int environmentSize;
+
+    private Activation[] activations = new Activation[16];
+    private int depth;
+
+    /**
+     * What a call needs to return to its caller.
+     */
+    private static final class Activation {
+        final FlatInterpreter caller;
+        final Environment callerEnvironment;
+        final int environmentSize;
+        // the work stack below the call's END_OF_CALL item
+        final int workSize;
+        // what an initializer returns, or null for other functions
+        final Object instance;
+        // where to store the result of a memoized call, or null
+        final MemoTable memo;
+        final Object key;
+
+        Activation(final FlatInterpreter caller, final Environment callerEnvironment, final int environmentSize,
+                   final int workSize, final Object instance, final MemoTable memo, final Object key) {
+            this.caller = caller;
+            this.callerEnvironment = callerEnvironment;
+            this.environmentSize = environmentSize;
+            this.workSize = workSize;
+            this.instance = instance;
+            this.memo = memo;
+            this.key = key;
+        }
+    }
+
+    StackInterpreter(final Interpreter interpreter, final FlatAst ast) {
+        this.interpreter = interpreter;
+        this.current = new FlatInterpreter(interpreter, ast);
+        this.ast = ast;
+        this.environment = interpreter.globals;
+    }
+
+    private StackInterpreter(final Interpreter interpreter, final FlatInterpreter current) {
+        this.interpreter = interpreter;
+        this.current = current;
+        this.ast = current.ast;
+        this.environment = interpreter.globals;
+    }
+
+    void interpret() {
+        try {
+            final int program = ast.program();
+            pushList(program);
+            run();
+        } catch (final RuntimeError error) {
+            interpreter.out.flush();
+            interpreter.reporter.runtimeError(error);
+        }
+    }
+
+    /**
+     * Calls a function from Java on a machine of its own; {@link FlatFunction} calls this in stack mode.
+     *
+     * @param closure the environment to call the function in (its closure, or a bound one)
+     */
+    static Object call(final Interpreter interpreter, final FlatFunction function, final Environment closure,
+                       final List<Object> arguments) {
+        final StackInterpreter machine = new StackInterpreter(interpreter, function.evaluator.forInterpreter(interpreter));
+        machine.enter(function, closure, arguments, null, 0);
+        machine.run();
+        return machine.values[0];
+    }
+
+    private void run() {
+        while (workSize > 0) {
+            workSize--;
+            final int node = workNodes[workSize];
+            final int step = workSteps[workSize];
+            if (node == RESTORE_ENVIRONMENT) {
+                environment = environments[--environmentSize];
+                environments[environmentSize] = null;
+            } else if (node == END_OF_CALL) {
+                finishCall(null);
+            } else if (ast.kind(node) >= STMT) {
+                execute(node, step);
+            } else {
+                evaluate(node, step);
+            }
+        }
+    }
+
+    private void execute(final int node, final int step) {
+        switch (ast.kind(node)) {
+            case STMT + Stmt.BLOCK -> {
+                pushEnvironment(new Environment(environment));
+                pushList(ast.a(node));
+            }
+            case STMT + Stmt.CLASS -> {
+                if (step == 0 && ast.c(node) != NONE) {
+                    push(node, 1);
+                    push(ast.c(node), 0);
+                } else {
+                    final Object superclass = step == 0 ? null : pop();
+                    executeClass(node, superclass);
+                }
+            }
+            case STMT + Stmt.EXPRESSION -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else {
+                    pop();
+                }
+            }
+            case STMT + Stmt.FUNCTION ->
+                    environment.define(ast.name(ast.a(node)), new FlatFunction(current, node, environment, false));
+            case STMT + Stmt.IF -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else if (Interpreter.isTruthy(pop())) {
+                    push(ast.b(node), 0);
+                } else if (ast.c(node) != NONE) {
+                    push(ast.c(node), 0);
+                }
+            }
+            case STMT + Stmt.PRINT -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else {
+                    interpreter.out.print(pop());
+                }
+            }
+            case STMT + Stmt.RETURN -> {
+                if (ast.a(node) == NONE) {
+                    returnFromCall(null);
+                } else if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else {
+                    returnFromCall(pop());
+                }
+            }
+            case STMT + Stmt.VAR -> {
+                if (ast.b(node) == NONE) {
+                    environment.define(ast.name(ast.a(node)), null);
+                } else if (step == 0) {
+                    push(node, 1);
+                    push(ast.b(node), 0);
+                } else {
+                    environment.define(ast.name(ast.a(node)), pop());
+                }
+            }
+            case STMT + Stmt.WHILE -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else if (Interpreter.isTruthy(pop())) {
+                    // come back to test the condition again once the body has run
+                    push(node, 0);
+                    push(ast.b(node), 0);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown statement kind " + ast.kind(node));
+        }
+    }
+
+    private void executeClass(final int node, final Object superclassValue) {
+        LoxClass superclass = null;
+        if (ast.c(node) != NONE) {
+            superclass = Interpreter.superclass(superclassValue, ast.line(ast.c(node)));
+        }
+
+        final String name = ast.name(ast.a(node));
+        environment.define(name, null);
+
+        Environment methodEnvironment = environment;
+        if (superclass != null) {
+            methodEnvironment = new Environment(environment);
+            methodEnvironment.define("super", superclass);
+        }
+
+        final Map<String, LoxMethod> methods = new HashMap<>();
+        final int body = ast.b(node);
+        for (int i = 1; i < ast.listSize(body); i++) {
+            final int method = ast.listItem(body, i);
+            final String methodName = ast.name(ast.a(method));
+            methods.put(methodName, new FlatFunction(current, method, methodEnvironment, methodName.equals("init")));
+        }
+
+        environment.assign(name, ast.line(node), new LoxClass(name, superclass, methods, ast.listItem(body, 0)));
+    }
+
+    private void evaluate(final int node, final int step) {
+        switch (ast.kind(node)) {
+            case Expr.ARRAY -> {
+                final int list = ast.a(node);
+                if (step == 0) {
+                    push(node, 1);
+                    pushList(list);
+                } else {
+                    final int size = ast.listSize(list);
+                    final LoxArray array = new LoxArray(size);
+                    for (int i = valueSize - size; i < valueSize; i++) {
+                        array.add(values[i]);
+                    }
+                    popValues(size);
+                    pushValue(array);
+                }
+            }
+            case Expr.ASSIGN -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.b(node), 0);
+                } else {
+                    // the assigned value stays on the stack as the result
+                    final Object value = values[valueSize - 1];
+                    if (ast.c(node) != NONE) {
+                        environment.assignAt(ast.c(node), ast.name(ast.a(node)), value);
+                    } else {
+                        interpreter.globals.assign(ast.name(ast.a(node)), ast.line(node), value);
+                    }
+                }
+            }
+            case Expr.BINARY -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.b(node), 0);
+                    push(ast.a(node), 0);
+                } else {
+                    final Object right = pop();
+                    final Object left = pop();
+                    pushValue(Interpreter.binary(ast.operator(ast.c(node)), ast.line(node), left, right));
+                }
+            }
+            case Expr.CALL -> {
+                if (step == 0) {
+                    push(node, 1);
+                    pushList(ast.b(node));
+                    push(ast.a(node), 0);
+                } else {
+                    call(node);
+                }
+            }
+            case Expr.GET -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else {
+                    final Object object = pop();
+                    if (object instanceof LoxInstance instance) {
+                        pushValue(instance.get(ast.name(ast.b(node)), ast.line(node)));
+                    } else {
+                        throw new RuntimeError(ast.line(node), "Only instances have properties");
+                    }
+                }
+            }
+            case Expr.GROUPING -> push(ast.a(node), 0);
+            case Expr.INDEX -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.b(node), 0);
+                    push(ast.a(node), 0);
+                } else {
+                    final Object index = pop();
+                    final Object array = pop();
+                    pushValue(ArrayNatives.get(array, index, ast.line(node)));
+                }
+            }
+            case Expr.INDEX_SET -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.c(node), 0);
+                    push(ast.b(node), 0);
+                    push(ast.a(node), 0);
+                } else {
+                    final Object value = pop();
+                    final Object index = pop();
+                    final Object array = pop();
+                    ArrayNatives.set(array, index, value, ast.line(node));
+                    pushValue(value);
+                }
+            }
+            case Expr.LITERAL -> pushValue(ast.constant(ast.a(node)));
+            case Expr.LOGICAL -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else {
+                    final Object left = values[valueSize - 1];
+                    final boolean shortCircuit = ast.operator(ast.c(node)) == TokenType.OR
+                            ? Interpreter.isTruthy(left) : !Interpreter.isTruthy(left);
+                    // the left operand stays as the result when it decides the outcome
+                    if (!shortCircuit) {
+                        pop();
+                        push(ast.b(node), 0);
+                    }
+                }
+            }
+            case Expr.SET -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else if (step == 1) {
+                    // the object is checked before the value is evaluated, as in the other evaluators
+                    final Object object = values[valueSize - 1];
+                    if (!(object instanceof LoxInstance)) {
+                        throw new RuntimeError(ast.line(node), "Only instances have fields (found " +
+                                object.getClass().getName() + ")");
+                    }
+                    push(node, 2);
+                    push(ast.c(node), 0);
+                } else {
+                    final Object value = pop();
+                    final LoxInstance instance = (LoxInstance) pop();
+                    instance.set(ast.name(ast.b(node)), value);
+                    pushValue(value);
+                }
+            }
+            case Expr.SUPER -> {
+                final LoxClass superclass = (LoxClass) environment.getAt(ast.b(node), "super");
+                final LoxInstance object = (LoxInstance) environment.getAt(ast.b(node) - 1, "this");
+                pushValue(Interpreter.superMethod(superclass, object, ast.name(ast.a(node)), ast.line(node)));
+            }
+            case Expr.THIS -> pushValue(environment.getAt(ast.a(node), "this"));
+            case Expr.UNARY -> {
+                if (step == 0) {
+                    push(node, 1);
+                    push(ast.a(node), 0);
+                } else {
+                    pushValue(Interpreter.unary(ast.operator(ast.b(node)), ast.line(node), pop()));
+                }
+            }
+            case Expr.VARIABLE -> {
+                final String name = ast.name(ast.a(node));
+                if (ast.b(node) != NONE) {
+                    pushValue(environment.getAt(ast.b(node), name));
+                } else {
+                    pushValue(interpreter.globals.get(name, ast.line(node)));
+                }
+            }
+            default -> throw new IllegalStateException("Unknown expression kind " + ast.kind(node));
+        }
+    }
+
+    /**
+     * Completes a Call node whose callee and arguments are on the value stack. Functions and initializers declared in
+     * Lox run on this machine; anything else (natives, classes without a flat initializer) is called directly.
+     */
+    private void call(final int node) {
+        final int line = ast.line(node);
+        final int count = ast.listSize(ast.b(node));
+        final List<Object> arguments = new ArrayList<>(Arrays.asList(values).subList(valueSize - count, valueSize));
+        popValues(count);
+        final Object callee = pop();
+
+        if (callee instanceof FlatFunction function) {
+            checkArity(function.arity(), count, line);
+            enter(function, function.closure, arguments, null, line);
+            return;
+        }
+        if (callee instanceof LoxClass klass && klass.initializer() instanceof FlatFunction initializer) {
+            checkArity(initializer.arity(), count, line);
+            final LoxInstance instance = new LoxInstance(klass);
+            final Environment closure = new Environment(initializer.closure);
+            closure.define("this", instance);
+            enter(initializer, closure, arguments, instance, line);
+            return;
+        }
+
+        if (!(callee instanceof LoxCallable function)) {
+            throw new RuntimeError(line, "Can only call functions and classes");
+        }
+        checkArity(function.arity(), count, line);
+        try {
+            pushValue(function.call(interpreter, arguments));
+        } catch (final NativeError error) {
+            throw new RuntimeError(line, error.getMessage());
+        }
+    }
+
+    private static void checkArity(final int arity, final int count, final int line) {
+        if (count != arity) {
+            throw new RuntimeError(line, "Expected " + arity + " arguments but got " + count);
+        }
+    }
+
+    private void enter(final FlatFunction function, final Environment closure, final List<Object> arguments,
+                       final Object instance, final int line) {
+        final MemoTable memo = function.evaluator.ast.memo(function.declaration);
+        final Object key = memo == null ? null : MemoTable.key(arguments);
+        if (key != null) {
+            final Object cached = memo.get(key);
+            if (cached != MemoTable.MISSING) {
+                pushValue(cached);
+                return;
+            }
+        }
+        if (depth == MAX_DEPTH) {
+            throw new RuntimeError(line, "Stack overflow (more than " + MAX_DEPTH + " nested calls)");
+        }
+        if (depth == activations.length) {
+            activations = Arrays.copyOf(activations, depth * 2);
+        }
+        // a bound initializer called as a method returns its instance too
+        final Object result = instance != null || !function.isInitializer ? instance : closure.getAt(0, "this");
+        activations[depth++] = new Activation(current, environment, environmentSize, workSize, result,
+                key == null ? null : memo, key);
+
+        current = function.evaluator.forInterpreter(interpreter);
+        ast = current.ast;
+        environment = new Environment(closure);
+        final int declaration = function.declaration;
+        final int params = ast.b(declaration);
+        for (int i = 0; i < ast.listSize(params); i++) {
+            environment.define(ast.name(ast.listItem(params, i)), arguments.get(i));
+        }
+        push(END_OF_CALL, 0);
+        pushList(ast.c(declaration));
+    }
+
+    private void returnFromCall(final Object value) {
+        // drop the rest of the function body, up to and including its END_OF_CALL item
+        workSize = activations[depth - 1].workSize;
+        finishCall(value);
+    }
+
+    private void finishCall(final Object value) {
+        final Activation activation = activations[--depth];
+        activations[depth] = null;
+        current = activation.caller;
+        ast = current.ast;
+        environment = activation.callerEnvironment;
+        while (environmentSize > activation.environmentSize) {
+            environments[--environmentSize] = null;
+        }
+        if (activation.memo != null) {
+            activation.memo.put(activation.key, value);
+        }
+        pushValue(activation.instance != null ? activation.instance : value);
+    }
+
+    private void pushEnvironment(final Environment inner) {
+        if (environmentSize == environments.length) {
+            environments = Arrays.copyOf(environments, environmentSize * 2);
+        }
+        environments[environmentSize++] = environment;
+        environment = inner;
+        push(RESTORE_ENVIRONMENT, 0);
+    }
+
+    private void push(final int node, final int step) {
+        if (workSize == workNodes.length) {
+            workNodes = Arrays.copyOf(workNodes, workSize * 2);
+            workSteps = Arrays.copyOf(workSteps, workSize * 2);
+        }
+        workNodes[workSize] = node;
+        workSteps[workSize] = step;
+        workSize++;
+    }
+
+    // pushes the items of a list so that they run first to last
+    private void pushList(final int list) {
+        for (int i = ast.listSize(list) - 1; i >= 0; i--) {
+            push(ast.listItem(list, i), 0);
+        }
+    }
+
+    private void pushValue(final Object value) {
+        if (valueSize == values.length) {
+            values = Arrays.copyOf(values, valueSize * 2);
+        }
+        values[valueSize++] = value;
+    }
+
+    private Object pop() {
+        final Object value = values[--valueSize];
+        values[valueSize] = null;
+        return value;
+    }
+
+    private void popValues(final int count) {
+        Arrays.fill(values, valueSize - count, valueSize, null);
+        valueSize -= count;
+    }
+}
@@ -3,39 +3,48 @@ package com.craftinginterpreters.lox;
 
 import java.util.List;
 
-abstract class Stmt {
+abstract sealed class Stmt {
+  static final int BLOCK = 0;
+  static final int CLASS = 1;
+  static final int EXPRESSION = 2;
+  static final int FUNCTION = 3;
+  static final int IF = 4;
+  static final int PRINT = 5;
+  static final int RETURN = 6;
+  static final int VAR = 7;
+  static final int WHILE = 8;
+
   interface Visitor<R> {
-    R visitFunctionStmt(Function stmt);
+    R visitBlockStmt(Block stmt);
     R visitClassStmt(Class stmt);
+    R visitExpressionStmt(Expression stmt);
+    R visitFunctionStmt(Function stmt);
     R visitIfStmt(If stmt);
-    R visitBlockStmt(Block stmt);
-    R visitWhileStmt(While stmt);
+    R visitPrintStmt(Print stmt);
     R visitReturnStmt(Return stmt);
-    R visitExpressionStmt(Expression stmt);
     R visitVarStmt(Var stmt);
-    R visitPrintStmt(Print stmt);
+    R visitWhileStmt(While stmt);
 }
 
-  static class Function extends Stmt {
-    Function(Token name,List<Token> params,List<Stmt> body) {
-      this.name = name;
-      this.params = params;
-      this.body = body;
+  static final class Block extends Stmt {
+    Block(List<Stmt> statements) {
+      super(BLOCK);
+      this.statements = statements;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitFunctionStmt(this);
+      return visitor.visitBlockStmt(this);
     }
 
-    final Token name;
-    final List<Token> params;
-    final List<Stmt> body;
+    final List<Stmt> statements;
   }
 
-  static class Class extends Stmt {
-    Class(Token name,List<Stmt.Function> methods) {
+  static final class Class extends Stmt {
+    Class(Token name,Expr.Variable superclass,List<Stmt.Function> methods) {
+      super(CLASS);
       this.name = name;
+      this.superclass = superclass;
       this.methods = methods;
     }
 
@@ -45,84 +54,96 @@ abstract class Stmt {
     }
 
     final Token name;
+    final Expr.Variable superclass;
     final List<Stmt.Function> methods;
+    int fieldCount = 0;
   }
 
-  static class If extends Stmt {
-    If(Expr condition,Stmt thenBranch,Stmt elseBranch) {
-      this.condition = condition;
-      this.thenBranch = thenBranch;
-      this.elseBranch = elseBranch;
+  static final class Expression extends Stmt {
+    Expression(Expr expression) {
+      super(EXPRESSION);
+      this.expression = expression;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitIfStmt(this);
+      return visitor.visitExpressionStmt(this);
     }
 
-    final Expr condition;
-    final Stmt thenBranch;
-    final Stmt elseBranch;
+    final Expr expression;
   }
 
-  static class Block extends Stmt {
-    Block(List<Stmt> statements) {
-      this.statements = statements;
+  static final class Function extends Stmt {
+    Function(Token name,List<Token> params,List<Stmt> body) {
+      super(FUNCTION);
+      this.name = name;
+      this.params = params;
+      this.body = body;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitBlockStmt(this);
+      return visitor.visitFunctionStmt(this);
     }
 
-    final List<Stmt> statements;
+    final Token name;
+    final List<Token> params;
+    final List<Stmt> body;
+    boolean pure = false;
+    MemoTable memo = null;
   }
 
-  static class While extends Stmt {
-    While(Expr condition,Stmt body) {
+  static final class If extends Stmt {
+    If(Expr condition,Stmt thenBranch,Stmt elseBranch) {
+      super(IF);
       this.condition = condition;
-      this.body = body;
+      this.thenBranch = thenBranch;
+      this.elseBranch = elseBranch;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitWhileStmt(this);
+      return visitor.visitIfStmt(this);
     }
 
     final Expr condition;
-    final Stmt body;
+    final Stmt thenBranch;
+    final Stmt elseBranch;
   }
 
-  static class Return extends Stmt {
-    Return(Token keyword,Expr value) {
-      this.keyword = keyword;
-      this.value = value;
+  static final class Print extends Stmt {
+    Print(Expr expression) {
+      super(PRINT);
+      this.expression = expression;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitReturnStmt(this);
+      return visitor.visitPrintStmt(this);
     }
 
-    final Token keyword;
-    final Expr value;
+    final Expr expression;
   }
 
-  static class Expression extends Stmt {
-    Expression(Expr expression) {
-      this.expression = expression;
+  static final class Return extends Stmt {
+    Return(Token keyword,Expr value) {
+      super(RETURN);
+      this.keyword = keyword;
+      this.value = value;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitExpressionStmt(this);
+      return visitor.visitReturnStmt(this);
     }
 
-    final Expr expression;
+    final Token keyword;
+    final Expr value;
   }
 
-  static class Var extends Stmt {
+  static final class Var extends Stmt {
     Var(Token name,Expr initializer) {
+      super(VAR);
       this.name = name;
       this.initializer = initializer;
     }
@@ -136,18 +157,27 @@ abstract class Stmt {
     final Expr initializer;
   }
 
-  static class Print extends Stmt {
-    Print(Expr expression) {
-      this.expression = expression;
+  static final class While extends Stmt {
+    While(Expr condition,Stmt body) {
+      super(WHILE);
+      this.condition = condition;
+      this.body = body;
     }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
-      return visitor.visitPrintStmt(this);
+      return visitor.visitWhileStmt(this);
     }
 
-    final Expr expression;
+    final Expr condition;
+    final Stmt body;
   }
 
+  Stmt(int kind) {
+    this.kind = kind;
+  }
+
+  final int kind;
+
   abstract <R> R accept(Visitor<R> visitor);
 }
@@ -8,7 +8,7 @@ import java.io.Serial;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,37 +21,56 @@ public class GenerateAst {
             System.exit(Lox.USAGE_ERROR_CODE);
         }
         final Path outputDir = Paths.get(args[0]);
-        defineAst(outputDir, "Expr", new HashMap<>() {
+        // Fields with an initializer are not constructor parameters and are not final; they hold analysis results
+        // (such as the scope distance filled in by the Resolver) that are written once before the tree is executed.
+        defineAst(outputDir, "Expr", new LinkedHashMap<>() {
             @Serial
             private static final long serialVersionUID = -994542516729871375L;
 
             {
-                put("Assign", List.of("Token name", "Expr value"));
+                put("Array", List.of("Token bracket", "List<Expr> elements"));
+                put("Assign", List.of("Token name", "Expr value", "int distance = -1"));
                 put("Binary", List.of("Expr left", "Token operator", "Expr right"));
                 put("Call", List.of("Expr callee", "Token paren", "List<Expr> arguments"));
                 put("Get", List.of("Expr object", "Token name"));
                 put("Grouping", List.of("Expr expression"));
+                put("Index", List.of("Expr object", "Token bracket", "Expr index"));
+                put("IndexSet", List.of("Expr object", "Token bracket", "Expr index", "Expr value"));
                 put("Literal", List.of("Object value"));
                 put("Logical", List.of("Expr left", "Token operator", "Expr right"));
                 put("Set", List.of("Expr object", "Token name", "Expr value"));
-                put("This", List.of("Token keyword"));
+                put("Super", List.of("Token keyword", "Token method", "int distance = -1"));
+                put("This", List.of("Token keyword", "int distance = -1"));
                 put("Unary", List.of("Token operator", "Expr right"));
-                put("Variable", List.of("Token name"));
+                put("Variable", List.of("Token name", "int distance = -1"));
+            }
+        });
+        defineAst(outputDir, "Stmt", new LinkedHashMap<>() {
+            @Serial
+            private static final long serialVersionUID = 4284790183418318526L;
+
+            {
+                put("Block", List.of("List<Stmt> statements"));
+                put("Class", List.of("Token name", "Expr.Variable superclass", "List<Stmt.Function> methods",
+                        "int fieldCount = 0"));
+                put("Expression", List.of("Expr expression"));
+                put("Function", List.of("Token name", "List<Token> params", "List<Stmt> body", "boolean pure = false",
+                        "MemoTable memo = null"));
+                put("If", List.of("Expr condition", "Stmt thenBranch", "Stmt elseBranch"));
+                put("Print", List.of("Expr expression"));
+                put("Return", List.of("Token keyword", "Expr value"));
+                put("Var", List.of("Token name", "Expr initializer"));
+                put("While", List.of("Expr condition", "Stmt body"));
             }
         });
-        defineAst(outputDir, "Stmt", Map.of(
-                "Block", List.of("List<Stmt> statements"),
-                "Class", List.of("Token name", "List<Stmt.Function> methods"),
-                "Expression", List.of("Expr expression"),
-                "Function", List.of("Token name", "List<Token> params", "List<Stmt> body"),
-                "If", List.of("Expr condition", "Stmt thenBranch", "Stmt elseBranch"),
-                "Print", List.of("Expr expression"),
-                "Return", List.of("Token keyword", "Expr value"),
-                "Var", List.of("Token name", "Expr initializer"),
-                "While", List.of("Expr condition", "Stmt body")
-        ));
     }
 
+    /**
+     * Generates a sealed base class whose node types are final. Besides the visitor interface, every node carries an
+     * int {@code kind} tag (one constant per node type, numbered in declaration order) so that callers can dispatch
+     * with a {@code switch} instead of a virtual {@code accept} call. The tags are always generated, not just for
+     * switch dispatch: {@code FlatAst} stores them as its node kinds.
+     */
     private static void defineAst(final Path outputDir, final String baseName, final Map<String, List<String>> types) throws IOException {
         final Path path = outputDir.resolve(baseName + ".java");
         final PrintWriter writer = new PrintWriter(path.toFile(), StandardCharsets.UTF_8);
@@ -61,13 +80,22 @@ public class GenerateAst {
         writer.println();
         writer.println("import java.util.List;");
         writer.println();
-        writer.println("abstract class " + baseName + " {");
+        writer.println("abstract sealed class " + baseName + " {");
 
+        defineKinds(writer, types);
         defineVisitor(writer, baseName, types);
 
         // the AST classes
         types.forEach((className, fields) -> defineType(writer, baseName, className, fields));
 
+        // the node-kind tag
+        writer.println();
+        writer.println("  " + baseName + "(int kind) {");
+        writer.println("    this.kind = kind;");
+        writer.println("  }");
+        writer.println();
+        writer.println("  final int kind;");
+
         // the base accept() method
         writer.println();
         writer.println("  abstract <R> R accept(Visitor<R> visitor);");
@@ -76,6 +104,22 @@ public class GenerateAst {
         writer.close();
     }
 
+    private static boolean isAnalysisField(final String field) {
+        return field.contains(" = ");
+    }
+
+    private static void defineKinds(final PrintWriter writer, final Map<String, List<String>> types) {
+        int kind = 0;
+        for (final String className : types.keySet()) {
+            writer.println("  static final int " + kindName(className) + " = " + kind++ + ";");
+        }
+        writer.println();
+    }
+
+    private static String kindName(final String className) {
+        return className.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+    }
+
     private static void defineVisitor(final PrintWriter writer, final String baseName, final Map<String, List<String>> types) {
         writer.println("  interface Visitor<R> {");
 
@@ -86,11 +130,14 @@ public class GenerateAst {
         writer.println("}");
     }
 
-    private static void defineType(final PrintWriter writer, final String baseName, final String className, final List<String> fields) {
-        writer.println("\n  static class " + className + " extends " + baseName + " {");
+    private static void defineType(final PrintWriter writer, final String baseName, final String className, final List<String> allFields) {
+        final List<String> fields = allFields.stream().filter(field -> !isAnalysisField(field)).toList();
+        final List<String> analysisFields = allFields.stream().filter(GenerateAst::isAnalysisField).toList();
+        writer.println("\n  static final class " + className + " extends " + baseName + " {");
 
         // constructor
         writer.println("    " + className + "(" + String.join(",", fields) + ") {");
+        writer.println("      super(" + kindName(className) + ");");
 
         // store parameters in fields
         for (final String field : fields) {
@@ -111,6 +158,9 @@ public class GenerateAst {
         for (final String field : fields) {
             writer.println("    final " + field + ";");
         }
+        for (final String field : analysisFields) {
+            writer.println("    " + field + ";");
+        }
 
         writer.println("  }");
 
@@ -0,0 +1,136 @@
+package com.craftinginterpreters.lox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the scripts in {@code src/test/resources/scripts} with every evaluator and checks that each prints exactly what
+ * the {@code .out} file next to it holds. The evaluator is picked by system properties that are read once per JVM, so
+ * every run is a separate {@code java} process.
+ */
+class EvaluatorModesTest {
+    private static final Map<String, List<String>> EVALUATORS = new LinkedHashMap<>();
+
+    static {
+        EVALUATORS.put("tree", List.of());
+        EVALUATORS.put("switch", List.of("-Dlox.dispatch=switch"));
+        EVALUATORS.put("flat", List.of("-Dlox.ast=flat"));
+        EVALUATORS.put("stack", List.of("-Dlox.ast=stack"));
+    }
+
+    /**
+     * The output (stdout and stderr together) and exit status of one run.
+     */
+    private record Result(String output, int status) {
+    }
+
+    private static Path script(final String name) throws URISyntaxException {
+        return Path.of(EvaluatorModesTest.class.getResource("/scripts/" + name).toURI());
+    }
+
+    private static Result run(final Path script, final List<String> flags) throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(flags);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Lox.class.getName());
+        command.add(script.toString());
+
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        final String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS), "timed out: " + command);
+        return new Result(output, process.exitValue());
+    }
+
+    /**
+     * Runs {@code <name>.lox} with each evaluator, adding the given flags, and compares the result with
+     * {@code <name>.out} and the expected exit status.
+     */
+    private static void check(final String name, final int status, final String... flags) throws Exception {
+        final String expected = Files.readString(script(name + ".out"), StandardCharsets.UTF_8);
+        for (final Map.Entry<String, List<String>> evaluator : EVALUATORS.entrySet()) {
+            final List<String> allFlags = new ArrayList<>(evaluator.getValue());
+            allFlags.addAll(List.of(flags));
+            final Result result = run(script(name + ".lox"), allFlags);
+            assertEquals(expected, result.output(), name + " with the " + evaluator.getKey() + " evaluator");
+            assertEquals(status, result.status(), name + " exit status with the " + evaluator.getKey() + " evaluator");
+        }
+    }
+
+    @Test
+    void spawnAwaitAndChannels() throws Exception {
+        check("concurrency", Lox.SOFTWARE_ERROR_CODE);
+    }
+
+    @Test
+    void parallelMapAndReduce() throws Exception {
+        check("parallel", Lox.SOFTWARE_ERROR_CODE);
+    }
+
+    @Test
+    void arrays() throws Exception {
+        check("arrays", Lox.SOFTWARE_ERROR_CODE);
+    }
+
+    @Test
+    void maps() throws Exception {
+        check("maps", 0);
+    }
+
+    @Test
+    void ropes() throws Exception {
+        check("ropes", Lox.SOFTWARE_ERROR_CODE);
+    }
+
+    @Test
+    void integersBehaveLikeDoubles() throws Exception {
+        check("integers", 0);
+    }
+
+    @Test
+    void inheritance() throws Exception {
+        check("inheritance", Lox.SOFTWARE_ERROR_CODE);
+    }
+
+    @Test
+    void recursion() throws Exception {
+        check("recursion", Lox.SOFTWARE_ERROR_CODE);
+    }
+
+    @Test
+    void stackEvaluatorRecursesPastTheJavaStack() throws Exception {
+        final Path script = script("deep-recursion.lox");
+
+        final Result deep = run(script, List.of("-Dlox.ast=stack", "-Xss256k"));
+        assertEquals("90000\n", deep.output());
+        assertEquals(0, deep.status());
+
+        final Result limited = run(script, List.of("-Dlox.ast=stack", "-Dlox.maxDepth=1000"));
+        assertEquals("Stack overflow (more than 1000 nested calls)\n[line 4]\n", limited.output());
+        assertEquals(Lox.SOFTWARE_ERROR_CODE, limited.status());
+    }
+
+    @Test
+    void memoization() throws Exception {
+        // the .out file ends with the statistics, which list each memoized function in declaration order
+        check("memoization", 0, "-Dlox.memo=100", "-Dlox.memoStats=true");
+
+        final String expected = Files.readString(script("memoization.out"), StandardCharsets.UTF_8);
+        final Result unmemoized = run(script("memoization.lox"), List.of());
+        assertEquals(expected.substring(0, expected.indexOf("memo ")), unmemoized.output());
+    }
+}
@@ -0,0 +1,184 @@
+package com.craftinginterpreters.lox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress tests for {@link GlobalEnvironment} under concurrent use.
+ */
+class GlobalEnvironmentTest {
+    private static final int THREADS = 8;
+    private static final int NAMES = 1_000;
+    private static final int ROUNDS = 20_000;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void shutDown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Runs the task on every thread at once and rethrows the first failure.
+     */
+    private void runConcurrently(final Task task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            final int id = thread;
+            final Callable<Void> callable = () -> {
+                start.await();
+                task.run(id);
+                return null;
+            };
+            futures.add(executor.submit(callable));
+        }
+        start.countDown();
+        for (final Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    private static String name(final int thread, final int i) {
+        return "g" + thread + "_" + i;
+    }
+
+    @Test
+    void concurrentDefineAssignAndGet() throws Exception {
+        final GlobalEnvironment globals = new GlobalEnvironment();
+        globals.define("shared", -1.0);
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < NAMES; i++) {
+                globals.define(name(thread, i), (double) i);
+            }
+            for (int round = 0; round < ROUNDS; round++) {
+                final int i = round % NAMES;
+                final String own = name(thread, i);
+                globals.assign(own, 0, (double) round);
+                assertEquals((double) round, globals.get(own, 0));
+
+                // names of other threads are either not defined yet or hold one of the values written to them
+                final String other = name((thread + 1) % THREADS, i);
+                try {
+                    final double value = (Double) globals.get(other, 0);
+                    assertTrue(value >= 0 && value < Math.max(NAMES, ROUNDS));
+                } catch (final RuntimeError notDefinedYet) {
+                    // fine
+                }
+
+                globals.assign("shared", 0, (double) thread);
+                final double shared = (Double) globals.get("shared", 0);
+                assertTrue(shared >= 0 && shared < THREADS);
+            }
+        });
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < NAMES; i++) {
+                final int lastRound = ROUNDS - NAMES + i;
+                assertEquals((double) lastRound, globals.get(name(thread, i), 0));
+            }
+        }
+    }
+
+    @Test
+    void concurrentDefinesAreNotLost() throws Exception {
+        // a fresh environment each time, so that the table is resized while every thread is defining
+        for (int repetition = 0; repetition < 20; repetition++) {
+            final GlobalEnvironment globals = new GlobalEnvironment();
+
+            runConcurrently(thread -> {
+                for (int i = 0; i < NAMES; i++) {
+                    globals.define(name(thread, i), (double) i);
+                }
+            });
+
+            for (int thread = 0; thread < THREADS; thread++) {
+                for (int i = 0; i < NAMES; i++) {
+                    assertEquals((double) i, globals.get(name(thread, i), 0));
+                }
+            }
+        }
+    }
+
+    @Test
+    void concurrentRedefinitionLeavesOneOfTheValues() throws Exception {
+        final GlobalEnvironment globals = new GlobalEnvironment();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < NAMES; i++) {
+                globals.define("redefined" + i, (double) thread);
+            }
+        });
+
+        for (int i = 0; i < NAMES; i++) {
+            final double value = (Double) globals.get("redefined" + i, 0);
+            assertTrue(value >= 0 && value < THREADS);
+        }
+    }
+
+    @Test
+    void concurrentFirstWritesToSnapshotGlobals() throws Exception {
+        final Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < NAMES; i++) {
+            values.put("s" + i, "initial" + i);
+        }
+        final GlobalSnapshot snapshot = new GlobalSnapshot(Map.copyOf(values));
+        final GlobalEnvironment globals = new GlobalEnvironment(snapshot);
+        final GlobalEnvironment other = new GlobalEnvironment(snapshot);
+
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                final int i = round % NAMES;
+                final String name = "s" + i;
+                final Object before = globals.get(name, 0);
+                assertTrue(before.equals("initial" + i) || before instanceof Double);
+                // every thread races to make the first write to the same globals
+                globals.assign(name, 0, (double) thread);
+                assertTrue(globals.get(name, 0) instanceof Double);
+            }
+        });
+
+        for (int i = 0; i < NAMES; i++) {
+            final double value = (Double) globals.get("s" + i, 0);
+            assertTrue(value >= 0 && value < THREADS);
+            // neither the snapshot nor another environment started from it sees the writes
+            assertEquals("initial" + i, snapshot.values.get("s" + i));
+            assertEquals("initial" + i, other.get("s" + i, 0));
+        }
+        assertEquals(values, new HashMap<>(other.snapshot().values));
+    }
+
+    @Test
+    void assigningAnUndefinedGlobalFailsOnEveryThread() throws Exception {
+        final GlobalEnvironment globals = new GlobalEnvironment(new GlobalSnapshot(Map.of("known", 1.0)));
+
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                assertThrows(RuntimeError.class, () -> globals.assign("unknown", 0, 1.0));
+                assertThrows(RuntimeError.class, () -> globals.get("unknown", 0));
+                assertEquals(1.0, globals.get("known", 0));
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.craftinginterpreters.lox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link LoxArray} and the indexing in {@link ArrayNatives}.
+ */
+class LoxArrayTest {
+
+    @Test
+    void integralNumbersReadBackAsIntegers() {
+        final LoxArray array = LoxArray.of(new Object[]{1, 2.0, 2.5, -0.0, 1e10, Double.NaN});
+
+        assertEquals(1, array.get(0));
+        assertEquals(2, array.get(1));
+        assertEquals(2.5, array.get(2));
+        // neither negative zero nor a value outside the int range can be an int
+        assertEquals(-0.0, array.get(3));
+        assertEquals(1e10, array.get(4));
+        assertEquals(Double.NaN, array.get(5));
+    }
+
+    @Test
+    void storingANonNumberKeepsTheElements() {
+        final LoxArray array = new LoxArray();
+        for (int i = 0; i < 20; i++) {
+            array.add(i);
+        }
+        array.add(0.5);
+
+        array.set(3, "three");
+        array.add(null);
+
+        assertEquals(22, array.size());
+        assertEquals(0, array.get(0));
+        assertEquals("three", array.get(3));
+        assertEquals(19, array.get(19));
+        assertEquals(0.5, array.get(20));
+        assertEquals(null, array.get(21));
+        assertEquals("[0, 1, 2, three, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 0.5, nil]",
+                array.toString());
+
+        // numbers stored after the switch are kept as they are
+        final Object number = 1.5;
+        array.set(0, number);
+        assertSame(number, array.get(0));
+    }
+
+    @Test
+    void outOfRangeIndexesAreRuntimeErrors() {
+        final LoxArray numbers = LoxArray.of(new Object[]{1, 2, 3});
+        final LoxArray objects = LoxArray.of(new Object[]{"a", "b", "c"});
+
+        for (final LoxArray array : new LoxArray[]{numbers, objects}) {
+            for (final Object index : new Object[]{-1, 3, -1.0, 3.0, 1e10, Double.POSITIVE_INFINITY}) {
+                final RuntimeError get = assertThrows(RuntimeError.class, () -> ArrayNatives.get(array, index, 7));
+                assertEquals("Array index out of bounds.", get.getMessage());
+                assertEquals(7, get.line);
+                final RuntimeError set = assertThrows(RuntimeError.class,
+                        () -> ArrayNatives.set(array, index, 0, 7));
+                assertEquals("Array index out of bounds.", set.getMessage());
+            }
+            final RuntimeError fraction = assertThrows(RuntimeError.class, () -> ArrayNatives.get(array, 0.5, 7));
+            assertEquals("Array index must be an integer.", fraction.getMessage());
+            assertThrows(RuntimeError.class, () -> ArrayNatives.get(array, "0", 7));
+            assertThrows(RuntimeError.class, () -> ArrayNatives.get(array, Double.NaN, 7));
+        }
+
+        assertEquals(3, ArrayNatives.get(numbers, 2.0, 7));
+        assertEquals("c", ArrayNatives.get(objects, 2, 7));
+    }
+}